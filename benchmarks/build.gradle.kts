@@ -0,0 +1,57 @@
+plugins {
+    id("fabric-loom") version "1.0-SNAPSHOT"
+}
+
+loom {
+    // same fields as the mod, the benchmarks read vanilla block properties
+    accessWidenerPath.set(rootProject.file("src/main/resources/multiconnect.accesswidener"))
+    @Suppress("UnstableApiUsage")
+    mixin {
+        useLegacyMixinAp.set(false)
+    }
+}
+
+repositories {
+    mavenCentral()
+    maven {
+        url = uri("https://repo.viaversion.com/")
+    }
+    maven {
+        url = uri("https://maven.parchmentmc.org/")
+    }
+}
+
+dependencies {
+    minecraft("com.mojang:minecraft:${rootProject.property("minecraft_version")}")
+    @Suppress("UnstableApiUsage")
+    mappings(loom.layered {
+        officialMojangMappings()
+        parchment("org.parchmentmc.data:parchment-${rootProject.property("parchment_mcversion")}:${rootProject.property("parchment_version")}@zip")
+    })
+    implementation(project(path = ":", configuration = "namedElements"))
+    implementation(project(":translator-api"))
+    implementation(project(path = ":via-translator", configuration = "namedElements"))
+    implementation("com.viaversion:viaversion:${rootProject.property("viaversion_version")}") {
+        isTransitive = false
+    }
+    implementation("org.yaml:snakeyaml:${rootProject.property("snakeyaml_version")}")
+    implementation("org.openjdk.jmh:jmh-core:${rootProject.property("jmh_version")}")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:${rootProject.property("jmh_version")}")
+}
+
+tasks {
+    // gradlew :benchmarks:jmh [-Pjmh.includes=<regex>]
+    register<JavaExec>("jmh") {
+        group = "multiconnect"
+        description = "Runs the JMH benchmarks and writes the results to build/reports/jmh/results.json"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("org.openjdk.jmh.Main")
+        workingDir = rootProject.file("run")
+        val resultsFile = file("$buildDir/reports/jmh/results.json")
+        doFirst {
+            resultsFile.parentFile.mkdirs()
+        }
+        args("-rf", "json", "-rff", resultsFile.absolutePath, "-prof", "gc")
+        project.findProperty("jmh.includes")?.let { args(it.toString()) }
+    }
+}
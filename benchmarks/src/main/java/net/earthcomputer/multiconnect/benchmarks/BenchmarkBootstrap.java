@@ -0,0 +1,19 @@
+package net.earthcomputer.multiconnect.benchmarks;
+
+import net.earthcomputer.multiconnect.impl.via.PacketReplay;
+import net.minecraft.server.Bootstrap;
+
+import java.nio.file.Path;
+
+public final class BenchmarkBootstrap {
+    private BenchmarkBootstrap() {
+    }
+
+    /**
+     * Initializes Via and the vanilla registries, once per forked JVM
+     */
+    public static void init() {
+        PacketReplay.bootstrap(Path.of("config", "multiconnect"));
+        Bootstrap.bootStrap();
+    }
+}
@@ -0,0 +1,82 @@
+package net.earthcomputer.multiconnect.benchmarks;
+
+import net.earthcomputer.multiconnect.protocols.ProtocolRegistry;
+import net.earthcomputer.multiconnect.protocols.generic.ProtocolBehaviorSet;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compares looking up destroy speed and explosion resistance overrides through the protocol behaviors with the tables
+ * baked in {@link ProtocolBehaviorSet#bakeBlockOverrides()}. One operation looks up every block state or block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockOverrideBenchmark {
+    @Param({"1.12.2", "1.16.5"})
+    public String version;
+
+    private ProtocolBehaviorSet behaviorSet;
+    private ProtocolBehaviorSet bakedBehaviorSet;
+    private BlockState[] states;
+    private Block[] blocks;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        int protocolVersion = SyntheticCorpus.protocolVersion(version);
+        bakedBehaviorSet = ProtocolRegistry.getBehaviorSet(protocolVersion);
+        bakedBehaviorSet.bakeBlockOverrides();
+        // the registry caches its behavior sets, so make an unbaked one with the same behaviors
+        behaviorSet = new ProtocolBehaviorSet(protocolVersion, bakedBehaviorSet.getBehaviors());
+        states = StreamSupport.stream(Block.BLOCK_STATE_REGISTRY.spliterator(), false).toArray(BlockState[]::new);
+        blocks = BuiltInRegistries.BLOCK.stream().toArray(Block[]::new);
+    }
+
+    @Benchmark
+    public void destroySpeedBehaviors(Blackhole blackhole) {
+        for (BlockState state : states) {
+            blackhole.consume(behaviorSet.getBlockDestroySpeed(state, state.destroySpeed));
+        }
+    }
+
+    @Benchmark
+    public void destroySpeedBaked(Blackhole blackhole) {
+        for (BlockState state : states) {
+            blackhole.consume(bakedBehaviorSet.getBlockDestroySpeed(state, state.destroySpeed));
+        }
+    }
+
+    @Benchmark
+    public void explosionResistanceBehaviors(Blackhole blackhole) {
+        for (Block block : blocks) {
+            blackhole.consume(behaviorSet.getBlockExplosionResistance(block, block.explosionResistance));
+        }
+    }
+
+    @Benchmark
+    public void explosionResistanceBaked(Blackhole blackhole) {
+        for (Block block : blocks) {
+            blackhole.consume(bakedBehaviorSet.getBlockExplosionResistance(block, block.explosionResistance));
+        }
+    }
+}
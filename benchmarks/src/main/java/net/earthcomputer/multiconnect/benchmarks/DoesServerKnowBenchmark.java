@@ -0,0 +1,79 @@
+package net.earthcomputer.multiconnect.benchmarks;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.earthcomputer.multiconnect.impl.via.PacketReplay;
+import net.earthcomputer.multiconnect.impl.via.ViaMulticonnectTranslator;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries {@link ViaMulticonnectTranslator#doesServerKnow} for items and blocks spread over the registries. One
+ * operation is one query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoesServerKnowBenchmark {
+    private static final int ENTRIES_PER_REGISTRY = 32;
+
+    @Param({"1.8", "1.12.2", "1.16.5", "1.19.2"})
+    public String version;
+
+    private EmbeddedChannel channel;
+    private ViaMulticonnectTranslator translator;
+    private final String[] registries = new String[ENTRIES_PER_REGISTRY * 2];
+    private final String[] entries = new String[ENTRIES_PER_REGISTRY * 2];
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkBootstrap.init();
+        channel = PacketReplay.createPlayChannel(SyntheticCorpus.protocolVersion(version));
+        PacketReplay.setCurrentChannel(channel);
+        translator = PacketReplay.getTranslator();
+        addEntries(BuiltInRegistries.ITEM, 0);
+        addEntries(BuiltInRegistries.BLOCK, ENTRIES_PER_REGISTRY);
+    }
+
+    private void addEntries(Registry<?> registry, int offset) {
+        List<ResourceLocation> keys = registry.keySet().stream().sorted().toList();
+        for (int i = 0; i < ENTRIES_PER_REGISTRY; i++) {
+            registries[offset + i] = registry.key().location().toString();
+            entries[offset + i] = keys.get(i * keys.size() / ENTRIES_PER_REGISTRY).toString();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        PacketReplay.setCurrentChannel(null);
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES_PER_REGISTRY * 2)
+    public void doesServerKnow(Blackhole blackhole) {
+        for (int i = 0; i < entries.length; i++) {
+            blackhole.consume(translator.doesServerKnow(registries[i], entries[i]));
+        }
+    }
+}
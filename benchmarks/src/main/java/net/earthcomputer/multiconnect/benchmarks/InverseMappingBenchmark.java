@@ -0,0 +1,71 @@
+package net.earthcomputer.multiconnect.benchmarks;
+
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.data.MappingData;
+import com.viaversion.viaversion.api.data.Mappings;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.earthcomputer.multiconnect.impl.via.InverseMappings;
+import net.earthcomputer.multiconnect.impl.via.PacketReplay;
+import net.earthcomputer.multiconnect.impl.via.ViaMulticonnectTranslator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the inverse registry mappings of every protocol in the pipeline to the given version, which happens once per
+ * protocol the first time {@code doesServerKnow} is used with it. One operation is the whole pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InverseMappingBenchmark {
+    @Param({"1.8", "1.12.2", "1.16.5", "1.19.2"})
+    public String version;
+
+    private final List<Mappings> mappings = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkBootstrap.init();
+        EmbeddedChannel channel = PacketReplay.createPlayChannel(SyntheticCorpus.protocolVersion(version));
+        UserConnection connection = ViaMulticonnectTranslator.getUserConnection(channel);
+        assert connection != null;
+        for (Protocol<?, ?, ?, ?> protocol : connection.getProtocolInfo().getPipeline().pipes()) {
+            MappingData mappingData = protocol.getMappingData();
+            if (mappingData == null) {
+                continue;
+            }
+            for (InverseMappings.MappingType type : InverseMappings.MappingType.values()) {
+                Mappings mappings = type.getMappings(mappingData);
+                if (mappings != null) {
+                    this.mappings.add(mappings);
+                }
+            }
+        }
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void invertPipelineMappings(Blackhole blackhole) {
+        for (Mappings mappings : this.mappings) {
+            blackhole.consume(InverseMappings.invert(mappings));
+        }
+    }
+}
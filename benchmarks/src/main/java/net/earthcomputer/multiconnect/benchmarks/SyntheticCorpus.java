@@ -0,0 +1,165 @@
+package net.earthcomputer.multiconnect.benchmarks;
+
+import com.viaversion.viaversion.api.protocol.packet.ClientboundPacketType;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import com.viaversion.viaversion.protocols.protocol1_12_1to1_12.ClientboundPackets1_12_1;
+import com.viaversion.viaversion.protocols.protocol1_16_2to1_16_1.ClientboundPackets1_16_2;
+import com.viaversion.viaversion.protocols.protocol1_19_1to1_19.ClientboundPackets1_19_1;
+import com.viaversion.viaversion.protocols.protocol1_9to1_8.ClientboundPackets1_8;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.network.protocol.game.ServerboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ServerboundMovePlayerPacket;
+import net.minecraft.network.protocol.game.ServerboundSetCarriedItemPacket;
+import net.minecraft.network.protocol.game.ServerboundSwingPacket;
+import net.minecraft.world.InteractionHand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Generates a fixed mix of common play packets. Clientbound packets are written in the format of the server version,
+ * serverbound packets in the format of the current client.
+ */
+public final class SyntheticCorpus {
+    public static final int SIZE = 64;
+
+    private SyntheticCorpus() {
+    }
+
+    public static int protocolVersion(String version) {
+        return switch (version) {
+            case "1.8" -> ProtocolVersion.v1_8.getVersion();
+            case "1.12.2" -> ProtocolVersion.v1_12_2.getVersion();
+            case "1.16.5" -> ProtocolVersion.v1_16_4.getVersion();
+            case "1.19.2" -> ProtocolVersion.v1_19_1.getVersion();
+            default -> throw new IllegalArgumentException("No corpus for version " + version);
+        };
+    }
+
+    public static byte[][] clientbound(String version) {
+        PacketIds ids = switch (version) {
+            case "1.8" -> new PacketIds(ClientboundPackets1_8.KEEP_ALIVE, ClientboundPackets1_8.TIME_UPDATE, ClientboundPackets1_8.ENTITY_POSITION, ClientboundPackets1_8.ENTITY_VELOCITY, ClientboundPackets1_8.BLOCK_CHANGE, ClientboundPackets1_8.CHAT_MESSAGE);
+            case "1.12.2" -> new PacketIds(ClientboundPackets1_12_1.KEEP_ALIVE, ClientboundPackets1_12_1.TIME_UPDATE, ClientboundPackets1_12_1.ENTITY_POSITION, ClientboundPackets1_12_1.ENTITY_VELOCITY, ClientboundPackets1_12_1.BLOCK_CHANGE, ClientboundPackets1_12_1.CHAT_MESSAGE);
+            case "1.16.5" -> new PacketIds(ClientboundPackets1_16_2.KEEP_ALIVE, ClientboundPackets1_16_2.TIME_UPDATE, ClientboundPackets1_16_2.ENTITY_POSITION, ClientboundPackets1_16_2.ENTITY_VELOCITY, ClientboundPackets1_16_2.BLOCK_CHANGE, ClientboundPackets1_16_2.CHAT_MESSAGE);
+            case "1.19.2" -> new PacketIds(ClientboundPackets1_19_1.KEEP_ALIVE, ClientboundPackets1_19_1.TIME_UPDATE, ClientboundPackets1_19_1.ENTITY_POSITION, ClientboundPackets1_19_1.ENTITY_VELOCITY, ClientboundPackets1_19_1.BLOCK_CHANGE, ClientboundPackets1_19_1.SYSTEM_CHAT);
+            default -> throw new IllegalArgumentException("No corpus for version " + version);
+        };
+        int protocol = protocolVersion(version);
+        boolean legacy = protocol == ProtocolVersion.v1_8.getVersion();
+        boolean oldPosition = protocol < ProtocolVersion.v1_14.getVersion();
+        // stone, dirt, planks, air
+        int[] blockStates = protocol < ProtocolVersion.v1_13.getVersion() ? new int[] {1 << 4, 3 << 4, 5 << 4, 0} : new int[] {1, 10, 15, 0};
+
+        Random rand = new Random(0);
+        List<byte[]> packets = new ArrayList<>(SIZE);
+        add(packets, 24, ids.entityPosition, buf -> {
+            buf.writeVarInt(rand.nextInt(1000));
+            if (legacy) {
+                buf.writeByte(rand.nextInt(16) - 8).writeByte(rand.nextInt(16) - 8).writeByte(rand.nextInt(16) - 8);
+            } else {
+                buf.writeShort(rand.nextInt(8192) - 4096).writeShort(rand.nextInt(8192) - 4096).writeShort(rand.nextInt(8192) - 4096);
+            }
+            buf.writeBoolean(rand.nextBoolean());
+        });
+        add(packets, 12, ids.entityVelocity, buf -> {
+            buf.writeVarInt(rand.nextInt(1000));
+            buf.writeShort(rand.nextInt(1000) - 500).writeShort(rand.nextInt(1000) - 500).writeShort(rand.nextInt(1000) - 500);
+        });
+        add(packets, 12, ids.blockChange, buf -> {
+            long x = rand.nextInt(2000) - 1000;
+            long y = rand.nextInt(128);
+            long z = rand.nextInt(2000) - 1000;
+            buf.writeLong(oldPosition
+                ? (x & 0x3ffffff) << 38 | (y & 0xfff) << 26 | (z & 0x3ffffff)
+                : (x & 0x3ffffff) << 38 | (z & 0x3ffffff) << 12 | (y & 0xfff));
+            buf.writeVarInt(blockStates[rand.nextInt(blockStates.length)]);
+        });
+        add(packets, 10, ids.chat, buf -> {
+            buf.writeUtf("{\"text\":\"<Player" + rand.nextInt(10) + "> hello there\"}");
+            if (protocol >= ProtocolVersion.v1_19_1.getVersion()) {
+                buf.writeBoolean(false);
+            } else {
+                buf.writeByte(0);
+                if (protocol >= ProtocolVersion.v1_16.getVersion()) {
+                    buf.writeUUID(new UUID(rand.nextLong(), rand.nextLong()));
+                }
+            }
+        });
+        add(packets, 4, ids.timeUpdate, buf -> buf.writeLong(rand.nextInt(1000000)).writeLong(rand.nextInt(24000)));
+        add(packets, 2, ids.keepAlive, buf -> {
+            if (legacy) {
+                buf.writeVarInt(rand.nextInt());
+            } else {
+                buf.writeLong(rand.nextLong());
+            }
+        });
+        return shuffle(packets);
+    }
+
+    public static byte[][] serverbound() {
+        Random rand = new Random(0);
+        List<byte[]> packets = new ArrayList<>(SIZE);
+        for (int i = 0; i < 24; i++) {
+            packets.add(encode(new ServerboundMovePlayerPacket.Pos(rand.nextDouble() * 1000, 64 + rand.nextDouble() * 10, rand.nextDouble() * 1000, rand.nextBoolean())));
+        }
+        for (int i = 0; i < 16; i++) {
+            packets.add(encode(new ServerboundMovePlayerPacket.PosRot(rand.nextDouble() * 1000, 64 + rand.nextDouble() * 10, rand.nextDouble() * 1000, rand.nextFloat() * 360, rand.nextFloat() * 180 - 90, rand.nextBoolean())));
+        }
+        for (int i = 0; i < 12; i++) {
+            packets.add(encode(new ServerboundMovePlayerPacket.Rot(rand.nextFloat() * 360, rand.nextFloat() * 180 - 90, rand.nextBoolean())));
+        }
+        for (int i = 0; i < 6; i++) {
+            packets.add(encode(new ServerboundSwingPacket(InteractionHand.MAIN_HAND)));
+        }
+        for (int i = 0; i < 4; i++) {
+            packets.add(encode(new ServerboundSetCarriedItemPacket(rand.nextInt(9))));
+        }
+        for (int i = 0; i < 2; i++) {
+            packets.add(encode(new ServerboundKeepAlivePacket(rand.nextLong())));
+        }
+        return shuffle(packets);
+    }
+
+    private static void add(List<byte[]> packets, int count, ClientboundPacketType type, Consumer<FriendlyByteBuf> writer) {
+        for (int i = 0; i < count; i++) {
+            FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+            buf.writeVarInt(type.getId());
+            writer.accept(buf);
+            packets.add(ByteBufUtil.getBytes(buf));
+        }
+    }
+
+    private static byte[] encode(Packet<?> packet) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(ConnectionProtocol.PLAY.getPacketId(PacketFlow.SERVERBOUND, packet));
+        packet.write(buf);
+        return ByteBufUtil.getBytes(buf);
+    }
+
+    private static byte[][] shuffle(List<byte[]> packets) {
+        if (packets.size() != SIZE) {
+            throw new IllegalStateException("Corpus has " + packets.size() + " packets, expected " + SIZE);
+        }
+        Collections.shuffle(packets, new Random(0));
+        return packets.toArray(byte[][]::new);
+    }
+
+    private record PacketIds(
+        ClientboundPacketType keepAlive,
+        ClientboundPacketType timeUpdate,
+        ClientboundPacketType entityPosition,
+        ClientboundPacketType entityVelocity,
+        ClientboundPacketType blockChange,
+        ClientboundPacketType chat
+    ) {
+    }
+}
@@ -0,0 +1,69 @@
+package net.earthcomputer.multiconnect.benchmarks;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.earthcomputer.multiconnect.impl.via.PacketReplay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translates the synthetic corpus through the clientbound and serverbound translator handlers. One operation is one
+ * packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark {
+    @Param({"1.8", "1.12.2", "1.16.5", "1.19.2"})
+    public String version;
+
+    private EmbeddedChannel channel;
+    private byte[][] clientbound;
+    private byte[][] serverbound;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkBootstrap.init();
+        channel = PacketReplay.createPlayChannel(SyntheticCorpus.protocolVersion(version));
+        clientbound = SyntheticCorpus.clientbound(version);
+        serverbound = SyntheticCorpus.serverbound();
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticCorpus.SIZE)
+    public void clientbound() {
+        for (byte[] packet : clientbound) {
+            channel.writeInbound(channel.alloc().buffer(packet.length).writeBytes(packet));
+        }
+        channel.releaseInbound();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticCorpus.SIZE)
+    public void serverbound() {
+        for (byte[] packet : serverbound) {
+            channel.writeOutbound(channel.alloc().buffer(packet.length).writeBytes(packet));
+        }
+        channel.releaseOutbound();
+    }
+}
@@ -9,6 +9,7 @@ import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -59,6 +60,13 @@ public abstract class MultiConnectAPI {
     @ThreadSafe
     public abstract <T> boolean doesServerKnow(Registry<T> registry, ResourceKey<T> key);
 
+    /**
+     * Returns the raw ids ({@link Registry#getId}) of all the entries in the given registry which the server knows
+     * about. This is much faster than calling {@link #doesServerKnow} for every entry. The returned set is a copy.
+     */
+    @ThreadSafe
+    public abstract <T> BitSet doesServerKnowAll(Registry<T> registry);
+
     //region deprecated methods
 
     /**
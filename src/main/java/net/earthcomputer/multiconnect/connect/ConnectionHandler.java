@@ -1,9 +1,12 @@
 package net.earthcomputer.multiconnect.connect;
 
 import com.mojang.logging.LogUtils;
+import net.earthcomputer.multiconnect.api.ScheduledTask;
 import net.earthcomputer.multiconnect.impl.ConnectionInfo;
+import net.earthcomputer.multiconnect.impl.MulticonnectScheduler;
 import net.earthcomputer.multiconnect.mixin.connect.ClientIntentionPacketAccessor;
 import net.earthcomputer.multiconnect.protocols.ProtocolRegistry;
+import net.earthcomputer.multiconnect.protocols.generic.ProtocolBehaviorSet;
 import net.minecraft.SharedConstants;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.ConnectScreen;
@@ -24,6 +27,11 @@ import java.util.Locale;
 
 public class ConnectionHandler {
     private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int TEARDOWN_DELAY_TICKS = Integer.getInteger("multiconnect.protocolTeardownDelayTicks", 20 * 60);
+    private static final int TEARDOWN_RETRY_TICKS = 20;
+
+    @Nullable
+    private static ScheduledTask pendingTeardown;
 
     public static boolean preConnect(InetSocketAddress addr, ServerAddress serverAddress, @Nullable String addressField) {
         // Hypixel has their own closed-source connection proxy and closed-source anti-cheat.
@@ -54,8 +62,11 @@ public class ConnectionHandler {
         }
 
         Screen screen = Minecraft.getInstance().screen;
-        if (!(screen instanceof ConnectScreen))
+        if (!(screen instanceof ConnectScreen)) {
+            // the version of the last server is kept until the teardown, so it has to be reset here
+            ConnectionInfo.protocolVersion = SharedConstants.getCurrentVersion().getProtocolVersion();
             return true;
+        }
         IConnectScreen connectScreen = (IConnectScreen) screen;
 
         Connection connection = Connection.connectToServer(addr, false);
@@ -101,9 +112,59 @@ public class ConnectionHandler {
 
     public static void onSendIntention() {
         if (ProtocolRegistry.isSupported(ConnectionInfo.protocolVersion)) {
-            ConnectionInfo.protocol = ProtocolRegistry.getBehaviorSet(ConnectionInfo.protocolVersion);
-            ConnectionInfo.protocol.setup();
+            switchProtocol(ConnectionInfo.protocolVersion);
+        }
+    }
+
+    /**
+     * Switching the behaviors back to the current version is deferred after a disconnect, so that reconnecting to a
+     * server on the same version, e.g. when hopping between servers on a network, doesn't switch back and forth. The
+     * switch happens on the next connection, when a singleplayer world is loaded, or after
+     * {@code -Dmulticonnect.protocolTeardownDelayTicks} ticks on the menus. Until then, the protocol version stays the
+     * one of the behaviors which are still set up.
+     */
+    public static synchronized void onDisconnect() {
+        if (pendingTeardown != null) {
+            pendingTeardown.cancel();
+        }
+        scheduleTeardown(TEARDOWN_DELAY_TICKS);
+    }
+
+    private static synchronized void scheduleTeardown(int delay) {
+        pendingTeardown = MulticonnectScheduler.scheduleDelayed(delay, ConnectionHandler::onTeardownDue);
+    }
+
+    private static synchronized void onTeardownDue() {
+        if (pendingTeardown == null) {
+            // a connection switched the protocol in the meantime
+            return;
+        }
+        if (Minecraft.getInstance().screen instanceof ConnectScreen) {
+            // a connection in progress will switch the protocol itself, check again in case it fails
+            scheduleTeardown(TEARDOWN_RETRY_TICKS);
+        } else {
+            finishTeardown();
+        }
+    }
+
+    public static synchronized void finishTeardown() {
+        if (pendingTeardown != null) {
+            switchProtocol(SharedConstants.getCurrentVersion().getProtocolVersion());
+        }
+    }
+
+    private static synchronized void switchProtocol(int version) {
+        if (pendingTeardown != null) {
+            pendingTeardown.cancel();
+            pendingTeardown = null;
+        }
+        ConnectionInfo.protocolVersion = version;
+        ProtocolBehaviorSet previous = ConnectionInfo.protocol;
+        if (previous.getProtocolVersion() == version) {
+            return;
         }
+        ConnectionInfo.protocol = ProtocolRegistry.getBehaviorSet(version);
+        ConnectionInfo.protocol.setup(previous);
     }
 
     public static String normalizeAddress(String addressStr) {
@@ -0,0 +1,87 @@
+package net.earthcomputer.multiconnect.connect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import net.earthcomputer.multiconnect.impl.Multiconnect;
+import net.earthcomputer.multiconnect.protocols.ProtocolRegistry;
+import net.earthcomputer.multiconnect.protocols.generic.AssetDownloader;
+import net.minecraft.SharedConstants;
+import net.minecraft.client.Minecraft;
+import org.slf4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares the translator and translations for versions the user is likely to connect to, while they are still on the
+ * title or multiplayer screen. Work runs one version at a time on a low priority thread, and stops once it has used up
+ * its CPU time budget of {@code -Dmulticonnect.prewarmBudgetMs} (5 seconds by default).
+ */
+public final class PipelinePrewarmer {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final boolean ENABLED = !Boolean.getBoolean("multiconnect.disablePrewarm");
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("multiconnect.prewarmBudgetMs", 5000));
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(
+        0, 1,
+        30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setPriority(Thread.MIN_PRIORITY).setNameFormat("multiconnect prewarm #%d").build()
+    );
+
+    // only accessed on the client thread
+    private static final IntSet requested = new IntOpenHashSet();
+    // only accessed on the prewarm thread
+    private static long usedNanos = 0;
+
+    private PipelinePrewarmer() {
+    }
+
+    public static void suggestForcedProtocols() {
+        for (int protocol : ServersExt.getInstance().getForcedProtocols()) {
+            suggest(protocol);
+        }
+    }
+
+    public static void suggest(int protocolVersion) {
+        if (!ENABLED
+            || protocolVersion == SharedConstants.getCurrentVersion().getProtocolVersion()
+            || !ProtocolRegistry.isSupported(protocolVersion)
+            || !requested.add(protocolVersion)
+        ) {
+            return;
+        }
+        String language = Minecraft.getInstance().getLanguageManager().getSelected().getCode();
+        EXECUTOR.execute(() -> prewarm(protocolVersion, language));
+    }
+
+    private static void prewarm(int protocolVersion, String language) {
+        if (usedNanos >= BUDGET_NANOS) {
+            return;
+        }
+        long start = getCpuTime();
+        try {
+            Multiconnect.translator.prewarm(protocolVersion);
+            AssetDownloader.prepareTranslationOverlay(protocolVersion, language);
+        } catch (Throwable e) {
+            LOGGER.warn("Failed to prewarm protocol {}", protocolVersion, e);
+        }
+        long time = getCpuTime() - start;
+        usedNanos += time;
+        LOGGER.debug("Prewarmed protocol {} in {} ms", protocolVersion, TimeUnit.NANOSECONDS.toMillis(time));
+        if (usedNanos >= BUDGET_NANOS) {
+            LOGGER.info("Used up the prewarm budget, skipping remaining versions");
+        }
+    }
+
+    private static long getCpuTime() {
+        return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -4,6 +4,8 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParseException;
 import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.earthcomputer.multiconnect.impl.IProtocolExt;
 import net.earthcomputer.multiconnect.protocols.ProtocolRegistry;
 import net.fabricmc.loader.api.FabricLoader;
@@ -70,6 +72,16 @@ public final class ServersExt {
         }
     }
 
+    public IntSet getForcedProtocols() {
+        IntSet result = new IntOpenHashSet();
+        for (ServerExt server : servers.values()) {
+            if (server.forcedProtocol != ConnectionMode.AUTO.getValue() && ProtocolRegistry.isSupported(server.forcedProtocol)) {
+                result.add(server.forcedProtocol);
+            }
+        }
+        return result;
+    }
+
     public boolean hasServer(String address) {
         return servers.containsKey(ConnectionHandler.normalizeAddress(address));
     }
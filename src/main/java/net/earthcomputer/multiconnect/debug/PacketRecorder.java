@@ -0,0 +1,403 @@
+package net.earthcomputer.multiconnect.debug;
+
+import com.mojang.logging.LogUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import net.earthcomputer.multiconnect.api.PacketRecording;
+import net.earthcomputer.multiconnect.impl.ConnectionInfo;
+import net.earthcomputer.multiconnect.impl.MulticonnectConfig;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.network.Connection;
+import net.minecraft.network.ConnectionProtocol;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Records packets going through the translator in both directions when {@code enablePacketRecorder} is set in the
+ * config. The Netty threads only copy the packet and push it onto a lock-free queue, waking the background thread only
+ * if it's waiting for more. The background thread compresses the packets in blocks and appends them to a memory-mapped
+ * file. The last block is written when the game shuts down. See {@link PacketRecording} for the format.
+ */
+public final class PacketRecorder {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Path RECORDINGS_DIR = FabricLoader.getInstance().getConfigDir().resolve("multiconnect").resolve("packet_recordings");
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss");
+
+    private static final long MAX_FILE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_FILES = 8;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAP_REGION_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_QUEUED_RECORDS = 100_000;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+
+    private static final long START_NANOS = System.nanoTime();
+    private static final long START_MICROS = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+    // the number of queued records is limited by queuedRecords
+    private static final Queue<QueuedRecord> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger queuedRecords = new AtomicInteger();
+    private static final AtomicInteger droppedRecords = new AtomicInteger();
+    private static final AtomicInteger nextConnectionId = new AtomicInteger();
+    private static volatile boolean failed = false;
+
+    private static final String CLIENTBOUND_UNTRANSLATED = "multiconnect_clientbound_untranslated_recorder";
+    private static final String CLIENTBOUND_TRANSLATED = "multiconnect_clientbound_translated_recorder";
+    private static final String SERVERBOUND_UNTRANSLATED = "multiconnect_serverbound_untranslated_recorder";
+    private static final String SERVERBOUND_TRANSLATED = "multiconnect_serverbound_translated_recorder";
+
+    private PacketRecorder() {
+    }
+
+    public static void install(Channel channel) {
+        if (!Boolean.TRUE.equals(MulticonnectConfig.INSTANCE.enablePacketRecorder) || failed) {
+            return;
+        }
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.context("decoder") == null || pipeline.context("encoder") == null) {
+            return;
+        }
+
+        WriterThread.ensureStarted();
+        int connectionId = nextConnectionId.getAndIncrement();
+        ByteBuffer protocolVersion = ByteBuffer.allocate(4).putInt(0, ConnectionInfo.protocolVersion);
+        enqueue(new QueuedRecord(PacketRecording.RecordType.CONNECT, now(), connectionId, getState(channel), protocolVersion.array()));
+
+        pipeline.addBefore("decoder", CLIENTBOUND_TRANSLATED, new ClientboundRecorder(PacketRecording.RecordType.CLIENTBOUND_TRANSLATED, connectionId));
+        pipeline.addBefore("encoder", SERVERBOUND_UNTRANSLATED, new ServerboundRecorder(PacketRecording.RecordType.SERVERBOUND_UNTRANSLATED, connectionId));
+        pipeline.addAfter(pipeline.context("decompress") != null ? "decompress" : "splitter", CLIENTBOUND_UNTRANSLATED, new ClientboundRecorder(PacketRecording.RecordType.CLIENTBOUND_UNTRANSLATED, connectionId));
+        pipeline.addAfter(pipeline.context("compress") != null ? "compress" : "prepender", SERVERBOUND_TRANSLATED, new ServerboundRecorder(PacketRecording.RecordType.SERVERBOUND_TRANSLATED, connectionId));
+    }
+
+    /**
+     * Moves the recorders back next to the translator after vanilla has added compression or encryption handlers
+     */
+    public static void reinstall(Channel channel) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.context(CLIENTBOUND_UNTRANSLATED) == null) {
+            return;
+        }
+
+        pipeline.addBefore("decoder", CLIENTBOUND_TRANSLATED, pipeline.remove(CLIENTBOUND_TRANSLATED));
+        pipeline.addBefore("encoder", SERVERBOUND_UNTRANSLATED, pipeline.remove(SERVERBOUND_UNTRANSLATED));
+        ChannelHandler clientboundUntranslated = pipeline.remove(CLIENTBOUND_UNTRANSLATED);
+        pipeline.addAfter(pipeline.context("decompress") != null ? "decompress" : "splitter", CLIENTBOUND_UNTRANSLATED, clientboundUntranslated);
+        ChannelHandler serverboundTranslated = pipeline.remove(SERVERBOUND_TRANSLATED);
+        pipeline.addAfter(pipeline.context("compress") != null ? "compress" : "prepender", SERVERBOUND_TRANSLATED, serverboundTranslated);
+    }
+
+    private static long now() {
+        return START_MICROS + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - START_NANOS);
+    }
+
+    private static int getState(Channel channel) {
+        ConnectionProtocol protocol = channel.attr(Connection.ATTRIBUTE_PROTOCOL).get();
+        return protocol == null ? ConnectionProtocol.HANDSHAKING.getId() : protocol.getId();
+    }
+
+    private static void record(PacketRecording.RecordType type, int connectionId, Channel channel, ByteBuf packet) {
+        if (failed) {
+            return;
+        }
+        enqueue(new QueuedRecord(type, now(), connectionId, getState(channel), ByteBufUtil.getBytes(packet)));
+    }
+
+    private static void enqueue(QueuedRecord record) {
+        // never block the netty thread, drop the record instead if the writer can't keep up
+        if (queuedRecords.incrementAndGet() > MAX_QUEUED_RECORDS) {
+            queuedRecords.decrementAndGet();
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        queue.offer(record);
+        WriterThread writer = WriterThread.instance;
+        if (writer != null && writer.waiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private record QueuedRecord(PacketRecording.RecordType type, long timestampMicros, int connectionId, int state, byte[] data) {
+        int size() {
+            return PacketRecording.RECORD_HEADER_SIZE + data.length;
+        }
+    }
+
+    private static final class ClientboundRecorder extends ChannelInboundHandlerAdapter {
+        private final PacketRecording.RecordType type;
+        private final int connectionId;
+
+        private ClientboundRecorder(PacketRecording.RecordType type, int connectionId) {
+            this.type = type;
+            this.connectionId = connectionId;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof ByteBuf buf) {
+                record(type, connectionId, ctx.channel(), buf);
+            }
+            super.channelRead(ctx, msg);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (type == PacketRecording.RecordType.CLIENTBOUND_UNTRANSLATED && !failed) {
+                enqueue(new QueuedRecord(PacketRecording.RecordType.DISCONNECT, now(), connectionId, getState(ctx.channel()), new byte[0]));
+            }
+            super.channelInactive(ctx);
+        }
+    }
+
+    private static final class ServerboundRecorder extends ChannelOutboundHandlerAdapter {
+        private final PacketRecording.RecordType type;
+        private final int connectionId;
+
+        private ServerboundRecorder(PacketRecording.RecordType type, int connectionId) {
+            this.type = type;
+            this.connectionId = connectionId;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (msg instanceof ByteBuf buf) {
+                record(type, connectionId, ctx.channel(), buf);
+            }
+            super.write(ctx, msg, promise);
+        }
+    }
+
+    private static final class WriterThread extends Thread {
+        private static volatile WriterThread instance;
+
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] compressed = new byte[BLOCK_SIZE];
+        private long lastFlush = System.nanoTime();
+
+        private FileChannel file;
+        private MappedByteBuffer header;
+        private MappedByteBuffer region;
+        private long regionStart;
+        private long dataLength;
+
+        // set while the writer is parked, so that producers only unpark it when it needs it
+        private volatile boolean waiting;
+        private volatile boolean closing;
+
+        private WriterThread() {
+            super("multiconnect packet recorder");
+            setDaemon(true);
+        }
+
+        static synchronized void ensureStarted() {
+            if (instance == null) {
+                instance = new WriterThread();
+                instance.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(WriterThread::shutdown, "multiconnect packet recorder shutdown"));
+            }
+        }
+
+        private static void shutdown() {
+            instance.closing = true;
+            LockSupport.unpark(instance);
+            try {
+                instance.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    QueuedRecord record = queue.poll();
+                    if (record != null) {
+                        queuedRecords.decrementAndGet();
+                        writeRecord(record);
+                        continue;
+                    }
+                    if (closing) {
+                        break;
+                    }
+
+                    long untilFlush = FLUSH_INTERVAL_NANOS - (System.nanoTime() - lastFlush);
+                    if (block.position() != 0 && untilFlush <= 0) {
+                        flushBlock();
+                        continue;
+                    }
+
+                    waiting = true;
+                    // checked again after setting the flag, a record queued before then wouldn't have unparked us
+                    if (queue.isEmpty() && !closing) {
+                        if (block.position() == 0) {
+                            LockSupport.park(this);
+                        } else {
+                            // wait for at most the time left until the partial block is due to be flushed
+                            LockSupport.parkNanos(this, untilFlush);
+                        }
+                    }
+                    waiting = false;
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                flushBlock();
+                closeFile();
+            } catch (InterruptedException e) {
+                LOGGER.warn("Packet recorder was interrupted, no more packets will be recorded");
+            } catch (IOException e) {
+                LOGGER.error("Packet recorder failed, no more packets will be recorded", e);
+            }
+            failed = true;
+            queue.clear();
+        }
+
+        private void writeRecord(QueuedRecord record) throws IOException {
+            if (block.remaining() < record.size()) {
+                flushBlock();
+            }
+            // oversized packets get a block to themselves
+            ByteBuffer dest = block.remaining() >= record.size() ? block : ByteBuffer.allocate(record.size());
+            dest.put((byte) record.type.ordinal())
+                .putLong(record.timestampMicros)
+                .putInt(record.connectionId)
+                .put((byte) record.state)
+                .putInt(record.data.length)
+                .put(record.data);
+            if (dest != block) {
+                writeBlock(dest);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            writeBlock(block);
+            block.clear();
+            lastFlush = System.nanoTime();
+            int dropped = droppedRecords.getAndSet(0);
+            if (dropped != 0) {
+                LOGGER.warn("Packet recorder couldn't keep up, dropped {} packets", dropped);
+            }
+        }
+
+        private void writeBlock(ByteBuffer data) throws IOException {
+            data.flip();
+            int uncompressedSize = data.remaining();
+            if (uncompressedSize == 0) {
+                return;
+            }
+
+            deflater.reset();
+            deflater.setInput(data);
+            deflater.finish();
+            int compressedSize = 0;
+            while (!deflater.finished()) {
+                if (compressedSize == compressed.length) {
+                    byte[] newCompressed = new byte[compressed.length * 2];
+                    System.arraycopy(compressed, 0, newCompressed, 0, compressedSize);
+                    compressed = newCompressed;
+                }
+                compressedSize += deflater.deflate(compressed, compressedSize, compressed.length - compressedSize);
+            }
+
+            int totalSize = PacketRecording.BLOCK_HEADER_SIZE + compressedSize;
+            if (file == null || PacketRecording.HEADER_SIZE + dataLength + totalSize > MAX_FILE_SIZE) {
+                rotate();
+            }
+            ensureRegion(totalSize);
+            region.putInt(uncompressedSize).putInt(compressedSize).put(compressed, 0, compressedSize);
+            dataLength += totalSize;
+            // only publish the length once the whole block is there, so a crash never leaves a half written block
+            header.putLong(8, dataLength);
+        }
+
+        private void ensureRegion(int size) throws IOException {
+            long position = PacketRecording.HEADER_SIZE + dataLength;
+            if (region == null || regionStart + region.position() != position || region.remaining() < size) {
+                regionStart = position;
+                region = file.map(FileChannel.MapMode.READ_WRITE, position, Math.max(MAP_REGION_SIZE, size));
+            }
+        }
+
+        private void rotate() throws IOException {
+            closeFile();
+
+            Files.createDirectories(RECORDINGS_DIR);
+            deleteOldRecordings();
+
+            String baseName = "packets-" + LocalDateTime.now().format(FILE_NAME_FORMAT);
+            Path path = RECORDINGS_DIR.resolve(baseName + PacketRecording.FILE_EXTENSION);
+            for (int i = 1; Files.exists(path); i++) {
+                path = RECORDINGS_DIR.resolve(baseName + "-" + i + PacketRecording.FILE_EXTENSION);
+            }
+            LOGGER.info("Recording packets to {}", path);
+
+            file = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            header = file.map(FileChannel.MapMode.READ_WRITE, 0, PacketRecording.HEADER_SIZE);
+            header.putInt(PacketRecording.MAGIC).putInt(PacketRecording.VERSION).putLong(0);
+            dataLength = 0;
+        }
+
+        private void closeFile() throws IOException {
+            if (file != null) {
+                header.force();
+                if (region != null) {
+                    region.force();
+                }
+                // regions are mapped in whole chunks, which leaves zeroes after the data
+                try {
+                    file.truncate(PacketRecording.HEADER_SIZE + dataLength);
+                } catch (IOException e) {
+                    // e.g. on Windows while the regions are still mapped, readers go by the data length in the header
+                    LOGGER.debug("Failed to truncate packet recording", e);
+                }
+                file.close();
+                file = null;
+                header = null;
+                region = null;
+            }
+        }
+
+        private static void deleteOldRecordings() throws IOException {
+            List<Path> recordings;
+            try (Stream<Path> files = Files.list(RECORDINGS_DIR)) {
+                recordings = files
+                    .filter(file -> file.getFileName().toString().endsWith(PacketRecording.FILE_EXTENSION))
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                    .toList();
+            }
+            for (int i = 0; i <= recordings.size() - MAX_FILES; i++) {
+                try {
+                    Files.delete(recordings.get(i));
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to delete old packet recording {}", recordings.get(i), e);
+                }
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.BitSet;
 import java.util.List;
 
 public class APIImpl extends MultiConnectAPI {
@@ -38,12 +39,29 @@ public class APIImpl extends MultiConnectAPI {
 
     @Override
     public <T> boolean doesServerKnow(Registry<T> registry, T value) {
-        return doesServerKnow(registry, registry.getResourceKey(value).orElseThrow(() -> new IllegalArgumentException("Called doesServerKnow on unregistered registry entry")));
+        int id = registry.getId(value);
+        if (id == -1) {
+            throw new IllegalArgumentException("Called doesServerKnow on unregistered registry entry");
+        }
+        return getKnownEntries(registry).get(id);
     }
 
     @Override
     public <T> boolean doesServerKnow(Registry<T> registry, ResourceKey<T> key) {
-        return Multiconnect.translator.doesServerKnow(registry.key().location().toString(), key.location().toString());
+        T value = registry.get(key);
+        if (value == null) {
+            return false;
+        }
+        return doesServerKnow(registry, value);
+    }
+
+    @Override
+    public <T> BitSet doesServerKnowAll(Registry<T> registry) {
+        return (BitSet) getKnownEntries(registry).clone();
+    }
+
+    private static BitSet getKnownEntries(Registry<?> registry) {
+        return Multiconnect.translator.doesServerKnowAll(registry.key().location().toString());
     }
 
     //region deprecated stuff
@@ -25,6 +25,9 @@ public class MulticonnectConfig {
     public Boolean enablePacketRecorder;
     @Nullable
     public Boolean debugKey;
+    // repeated chunk packets are served from this cache instead of being translated again, disabled if null or 0
+    @Nullable
+    public Integer translatedChunkCacheSizeMb;
 
     private static MulticonnectConfig load() {
         MulticonnectConfig config = null;
@@ -1,85 +1,180 @@
 package net.earthcomputer.multiconnect.impl;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import com.google.common.annotations.VisibleForTesting;
+import com.mojang.logging.LogUtils;
+import net.earthcomputer.multiconnect.api.ScheduledTask;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+/**
+ * Runs tasks on the client thread at the end of the client tick. Tasks may be scheduled from any thread, they are
+ * picked up on the next tick and run in order of due tick, then submission order.
+ *
+ * <p>Scheduled tasks are kept in a hashed timing wheel, so scheduling is O(1) and a tick only looks at the tasks in
+ * the slot for that tick.
+ */
 public class MulticonnectScheduler {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final long DEFAULT_TIME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("multiconnect.slowTaskThresholdMs", 10));
+    private static final int WHEEL_SIZE = 256;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    // only accessed on the client thread
     private static long tickCounter = 0;
+    @SuppressWarnings("unchecked")
+    private static final List<Task>[] wheel = new List[WHEEL_SIZE];
+    private static final List<Task> dueTasks = new ArrayList<>();
+    static {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayList<>(0);
+        }
+    }
 
-    private static final Int2ObjectMap<List<Task>> tasksByPeriod = new Int2ObjectAVLTreeMap<>();
+    private static final Queue<Task> submittedTasks = new ConcurrentLinkedQueue<>();
+    private static final AtomicLong nextSequence = new AtomicLong();
 
     public static void tick() {
-        var mapItr = tasksByPeriod.int2ObjectEntrySet().iterator();
-        while (mapItr.hasNext()) {
-            var entry = mapItr.next();
-            if (tickCounter % entry.getIntKey() == 0) {
-                var itr = entry.getValue().iterator();
-                boolean empty = true;
-                while (itr.hasNext()) {
-                    Task task = itr.next();
-                    if (task.isComplete()) {
-                        itr.remove();
-                    } else {
-                        task.run();
-                        empty = false;
-                    }
-                }
-                if (empty) {
-                    mapItr.remove();
+        Task task;
+        while ((task = submittedTasks.poll()) != null) {
+            insert(task, tickCounter + task.delay);
+        }
+
+        List<Task> slot = wheel[(int) (tickCounter & WHEEL_MASK)];
+        for (int i = 0; i < slot.size(); ) {
+            task = slot.get(i);
+            boolean cancelled = task.isCancelled();
+            if (cancelled || task.dueTick <= tickCounter) {
+                // order within a slot doesn't matter, due tasks are sorted below
+                slot.set(i, slot.get(slot.size() - 1));
+                slot.remove(slot.size() - 1);
+                if (!cancelled) {
+                    dueTasks.add(task);
                 }
+            } else {
+                i++;
+            }
+        }
 
+        if (!dueTasks.isEmpty()) {
+            dueTasks.sort(Comparator.comparingLong(t -> t.sequence));
+            for (Task dueTask : dueTasks) {
+                dueTask.runTimed();
+                if (dueTask.period > 0 && !dueTask.isCancelled()) {
+                    insert(dueTask, tickCounter + dueTask.period);
+                }
             }
+            dueTasks.clear();
         }
+
         tickCounter++;
     }
 
-    public static void schedule(Runnable task) {
-        schedule(1, task);
+    /**
+     * Drops every scheduled task, so that each test starts with an empty wheel on tick 0
+     */
+    @VisibleForTesting
+    static void reset() {
+        for (List<Task> slot : wheel) {
+            slot.clear();
+        }
+        dueTasks.clear();
+        submittedTasks.clear();
+        tickCounter = 0;
     }
 
-    public static void schedule(int period, Runnable task) {
-        tasksByPeriod.computeIfAbsent(period, k -> new ArrayList<>()).add(new Task() {
-            @Override
-            public void run() {
-                task.run();
-            }
+    private static void insert(Task task, long dueTick) {
+        task.dueTick = dueTick;
+        wheel[(int) (dueTick & WHEEL_MASK)].add(task);
+    }
 
-            @Override
-            public boolean isComplete() {
-                return false;
-            }
-        });
+    public static ScheduledTask scheduleDelayed(int delay, Runnable task) {
+        return submit(new Task(task, Math.max(0, delay), 0, null));
+    }
+
+    public static ScheduledTask schedule(Runnable task) {
+        return schedule(1, task);
     }
 
-    public static <T> void scheduleWeak(@NotNull T object, Consumer<? super T> task) {
-        scheduleWeak(1, object, task);
+    public static ScheduledTask schedule(int period, Runnable task) {
+        return submit(new Task(task, 0, Math.max(1, period), null));
     }
 
-    public static <T> void scheduleWeak(int period, @NotNull T object, Consumer<? super T> task) {
+    public static <T> ScheduledTask scheduleWeak(@NotNull T object, Consumer<? super T> task) {
+        return scheduleWeak(1, object, task);
+    }
+
+    public static <T> ScheduledTask scheduleWeak(int period, @NotNull T object, Consumer<? super T> task) {
         WeakReference<T> weakObject = new WeakReference<>(object);
-        tasksByPeriod.computeIfAbsent(period, k -> new ArrayList<>()).add(new Task() {
-            @Override
-            public void run() {
-                T object = weakObject.get();
-                if (object != null) {
-                    task.accept(object);
-                }
+        return submit(new Task(() -> {
+            T obj = weakObject.get();
+            if (obj != null) {
+                task.accept(obj);
             }
+        }, 0, Math.max(1, period), weakObject));
+    }
 
-            @Override
-            public boolean isComplete() {
-                return weakObject.get() == null;
-            }
-        });
+    private static Task submit(Task task) {
+        submittedTasks.add(task);
+        return task;
     }
 
-    private interface Task extends Runnable {
-        boolean isComplete();
+    private static final class Task implements ScheduledTask {
+        private final Runnable action;
+        private final int delay;
+        private final int period;
+        @Nullable
+        private final WeakReference<?> owner;
+        private final long sequence = nextSequence.getAndIncrement();
+        private long dueTick;
+        private volatile long timeBudgetNanos = DEFAULT_TIME_BUDGET_NANOS;
+        private volatile boolean cancelled;
+
+        private Task(Runnable action, int delay, int period, @Nullable WeakReference<?> owner) {
+            this.action = action;
+            this.delay = delay;
+            this.period = period;
+            this.owner = owner;
+        }
+
+        private void runTimed() {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } catch (Exception e) {
+                LOGGER.error("Error running scheduled task {}", action.getClass().getName(), e);
+            }
+            long time = System.nanoTime() - start;
+            long budget = timeBudgetNanos;
+            if (time > budget) {
+                LOGGER.warn("Scheduled task {} took {} ms, over its budget of {} ms", action.getClass().getName(), TimeUnit.NANOSECONDS.toMillis(time), TimeUnit.NANOSECONDS.toMillis(budget));
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled || (owner != null && owner.get() == null);
+        }
+
+        @Override
+        public ScheduledTask setTimeBudget(long budget, TimeUnit unit) {
+            timeBudgetNanos = unit.toNanos(budget);
+            return this;
+        }
     }
 }
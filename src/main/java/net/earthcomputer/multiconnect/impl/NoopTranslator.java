@@ -5,7 +5,11 @@ import io.netty.channel.Channel;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslator;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
 
+import java.util.BitSet;
+
 public class NoopTranslator implements IMulticonnectTranslator {
+    private IMulticonnectTranslatorApi api;
+
     @Override
     public int priority() {
         return Integer.MIN_VALUE;
@@ -18,6 +22,7 @@ public class NoopTranslator implements IMulticonnectTranslator {
 
     @Override
     public void init(IMulticonnectTranslatorApi api) {
+        this.api = api;
     }
 
     @Override
@@ -33,6 +38,11 @@ public class NoopTranslator implements IMulticonnectTranslator {
         return true;
     }
 
+    @Override
+    public BitSet doesServerKnowAll(String registry) {
+        return api.getAllKnownEntries(registry);
+    }
+
     @Override
     public void sendStringCustomPayload(Channel channel, String payloadChannel, ByteBuf payload) {
     }
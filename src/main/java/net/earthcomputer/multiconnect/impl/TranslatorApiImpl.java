@@ -2,17 +2,27 @@ package net.earthcomputer.multiconnect.impl;
 
 import io.netty.channel.Channel;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
+import net.earthcomputer.multiconnect.api.ScheduledTask;
 import net.earthcomputer.multiconnect.mixin.connect.ConnectionAccessor;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientPacketListener;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.network.RateKickingConnection;
+import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public class TranslatorApiImpl implements IMulticonnectTranslatorApi {
+    // queried on every creative tab and search query, so share one result per registry
+    private static final Map<String, BitSet> ALL_KNOWN_ENTRIES = new ConcurrentHashMap<>();
+
     @Override
     public int getProtocolVersion() {
         return ConnectionInfo.protocolVersion;
@@ -33,6 +43,12 @@ public class TranslatorApiImpl implements IMulticonnectTranslatorApi {
         return FabricLoader.getInstance().getConfigDir().resolve("multiconnect");
     }
 
+    @Override
+    public long getTranslatedChunkCacheSize() {
+        Integer sizeMb = MulticonnectConfig.INSTANCE.translatedChunkCacheSizeMb;
+        return sizeMb == null ? 0 : Math.max(0, sizeMb) * 1024L * 1024L;
+    }
+
     @Override
     @Nullable
     public Channel getCurrentChannel() {
@@ -44,12 +60,30 @@ public class TranslatorApiImpl implements IMulticonnectTranslatorApi {
     }
 
     @Override
-    public void scheduleRepeating(int period, Runnable task) {
-        MulticonnectScheduler.schedule(period, task);
+    public BitSet getAllKnownEntries(String registry) {
+        return ALL_KNOWN_ENTRIES.computeIfAbsent(registry, k -> {
+            Registry<?> reg = BuiltInRegistries.REGISTRY.get(new ResourceLocation(k));
+            if (reg == null) {
+                throw new IllegalArgumentException("Unknown registry: " + k);
+            }
+            BitSet result = new BitSet(reg.size());
+            result.set(0, reg.size());
+            return result;
+        });
+    }
+
+    @Override
+    public ScheduledTask scheduleDelayed(int delay, Runnable task) {
+        return MulticonnectScheduler.scheduleDelayed(delay, task);
+    }
+
+    @Override
+    public ScheduledTask scheduleRepeating(int period, Runnable task) {
+        return MulticonnectScheduler.schedule(period, task);
     }
 
     @Override
-    public <T> void scheduleRepeatingWeak(int period, T owner, Consumer<T> task) {
-        MulticonnectScheduler.scheduleWeak(period, owner, task);
+    public <T> ScheduledTask scheduleRepeatingWeak(int period, T owner, Consumer<T> task) {
+        return MulticonnectScheduler.scheduleWeak(period, owner, task);
     }
 }
@@ -11,6 +11,7 @@ import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
 import net.earthcomputer.multiconnect.protocols.generic.FileDownloader;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.util.GsonHelper;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.IOException;
@@ -18,23 +19,22 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Method;
 import java.net.*;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.Comparator;
 import java.util.ServiceLoader;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarInputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -42,9 +42,17 @@ public final class TranslatorDiscoverer {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final Gson GSON = new Gson();
     private static final Pattern GIT_DESCRIBE_PATTERN = Pattern.compile("-[0-9a-z]([0-9a-z]{8})$");
+    private static final String VIA_VERSION_DOWNLOAD = "viaversion.jar";
+    private static final String VIA_VERSION_INSTALLED = "viaversion-installed.jar";
+    private static final Path NESTED_JARS_DIR = FileDownloader.getCacheDir().resolve("nested_jars");
+    // nested jars not used by any launch for this long are deleted
+    private static final int NESTED_JAR_MAX_AGE_DAYS = 30;
 
     public static IMulticonnectTranslator discoverTranslator(IMulticonnectTranslatorApi api) {
+        long start = System.nanoTime();
         maybeDownloadTranslators();
+        LOGGER.info("Translator discovery took {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        CompletableFuture.runAsync(TranslatorDiscoverer::collectStaleNestedJars);
 
         ServiceLoader<IMulticonnectTranslator> loader = ServiceLoader.load(IMulticonnectTranslator.class);
         return loader.stream()
@@ -152,30 +160,22 @@ public final class TranslatorDiscoverer {
     private static void downloadViaTranslator(Path configDir) {
         Matcher matcher = GIT_DESCRIBE_PATTERN.matcher(Multiconnect.getVersion());
         if (matcher.find()) {
-            downloadViaTranslatorFromGithubActions(matcher.group(1));
+            downloadViaTranslatorFromGithubActions(configDir, matcher.group(1));
         } else {
             downloadViaTranslatorFromModrinth(configDir);
         }
     }
 
     private static void downloadViaTranslatorFromModrinth(Path configDir) {
-        URI versionsUri;
         try {
-            versionsUri = new URI("https://api.modrinth.com/v2/project/MNhf9veJ/version");
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
-        }
-
-        try {
-            HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
-
-            String userAgent = "multiconnect " + Multiconnect.getVersion();
-
-            HttpRequest versionsRequest = HttpRequest.newBuilder().uri(versionsUri).header("User-Agent", userAgent).build();
-            HttpResponse<InputStream> versionsResponse = client.send(versionsRequest, HttpResponse.BodyHandlers.ofInputStream());
-            JsonArray versions = GSON.fromJson(new InputStreamReader(versionsResponse.body(), StandardCharsets.UTF_8), JsonArray.class);
+            JsonArray versions = FileDownloader.downloadJson(
+                FileDownloader.createURL("https://api.modrinth.com/v2/project/MNhf9veJ/version"),
+                "multiconnect_modrinth_versions.json",
+                JsonArray.class
+            );
             if (versions == null) {
-                throw new JsonSyntaxException("versions is null");
+                LOGGER.error("Couldn't get multiconnect versions from modrinth, check your internet connection");
+                return;
             }
             JsonArray versionFiles = null;
             for (JsonElement version : versions) {
@@ -193,10 +193,15 @@ public final class TranslatorDiscoverer {
             }
 
             String fileUrl = null;
+            FileDownloader.Checksum checksum = null;
             for (JsonElement file : versionFiles) {
                 JsonObject fileObj = GsonHelper.convertToJsonObject(file, "file");
                 if (GsonHelper.getAsBoolean(fileObj, "primary", false)) {
                     fileUrl = GsonHelper.getAsString(fileObj, "url");
+                    JsonObject hashes = GsonHelper.getAsJsonObject(fileObj, "hashes", null);
+                    if (hashes != null && hashes.has("sha512")) {
+                        checksum = FileDownloader.Checksum.sha512(GsonHelper.getAsString(hashes, "sha512"));
+                    }
                     break;
                 }
             }
@@ -208,28 +213,34 @@ public final class TranslatorDiscoverer {
 
             LOGGER.info("Found multiconnect via translator download URL: {}", fileUrl);
 
-            URI fileUri;
+            URL fileURL;
             try {
-                fileUri = new URI(fileUrl);
-            } catch (URISyntaxException e) {
+                fileURL = new URL(fileUrl);
+            } catch (MalformedURLException e) {
                 LOGGER.error("Invalid download URL: {}", fileUrl);
                 return;
             }
-            HttpRequest downloadRequest = HttpRequest.newBuilder().uri(fileUri).header("User-Agent", userAgent).build();
-            Path downloadedFile = configDir.resolve("via-translator-" + Multiconnect.getVersion() + ".jar");
-            HttpResponse<Path> downloadResponse = client.send(downloadRequest, HttpResponse.BodyHandlers.ofFile(downloadedFile));
-            addToClassPath(downloadResponse.body());
-            LOGGER.info("Downloaded multiconnect via translator");
-        } catch (InterruptedException e) {
-            LOGGER.error("Interrupted while downloading multiconnect via translator", e);
-        } catch (UnknownHostException e) {
-            LOGGER.error("Couldn't connect to modrinth, check your internet connection", e);
-        } catch (IOException | JsonSyntaxException e) {
+            Path downloadedFile = FileDownloader.downloadAndParse(
+                fileURL,
+                "via-translator-" + Multiconnect.getVersion() + ".jar",
+                FileDownloader.Downloader.DEFAULT,
+                checksum,
+                file -> {
+                    try (JarFile ignored = new JarFile(file.toFile())) {
+                        return file;
+                    }
+                }
+            );
+            if (downloadedFile != null) {
+                addToClassPath(installViaTranslator(configDir, downloadedFile));
+                LOGGER.info("Downloaded multiconnect via translator");
+            }
+        } catch (JsonSyntaxException e) {
             LOGGER.error("Unable to download multiconnect via translator", e);
         }
     }
 
-    private static void downloadViaTranslatorFromGithubActions(String gitHashStart) {
+    private static void downloadViaTranslatorFromGithubActions(Path configDir, String gitHashStart) {
         JsonObject runs = FileDownloader.downloadJson(
             FileDownloader.createURL("https://api.github.com/repos/Earthcomputer/multiconnect/actions/runs"),
             "multiconnect_runs.json",
@@ -311,15 +322,58 @@ public final class TranslatorDiscoverer {
         );
 
         if (viaTranslatorJar != null) {
-            addToClassPath(viaTranslatorJar);
+            addToClassPath(installViaTranslator(configDir, viaTranslatorJar));
             LOGGER.info("Downloaded multiconnect via translator");
         }
     }
 
+    /**
+     * Keeps a copy of a downloaded via translator where the next launch finds it without going online
+     */
+    private static Path installViaTranslator(Path configDir, Path viaTranslatorJar) {
+        if (!isMatchingViaTranslatorJar(viaTranslatorJar)) {
+            return viaTranslatorJar;
+        }
+        Path installedJar = configDir.resolve("via-translator-" + Multiconnect.getVersion() + ".jar");
+        try {
+            Files.createDirectories(configDir);
+            Files.copy(viaTranslatorJar, installedJar, StandardCopyOption.REPLACE_EXISTING);
+            return installedJar;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to copy via translator to {}", installedJar, e);
+            return viaTranslatorJar;
+        }
+    }
+
     private static void maybeDownloadViaVersion() {
-        Path viaVersionJar = FileDownloader.downloadAndParse(
+        if (!Boolean.getBoolean("multiconnect.eagerTranslatorUpdate")) {
+            Path cachedJar = installViaVersion();
+            if (cachedJar != null) {
+                LOGGER.info("Using cached ViaVersion, checking for updates in the background");
+                addToClassPath(cachedJar);
+                CompletableFuture.runAsync(() -> {
+                    if (downloadViaVersion() != null) {
+                        LOGGER.info("Checked for ViaVersion updates, any update will be used on the next launch");
+                    }
+                });
+                return;
+            }
+        }
+
+        if (downloadViaVersion() != null) {
+            Path viaVersionJar = installViaVersion();
+            if (viaVersionJar != null) {
+                addToClassPath(viaVersionJar);
+                LOGGER.info("Downloaded ViaVersion");
+            }
+        }
+    }
+
+    @Nullable
+    private static Path downloadViaVersion() {
+        return FileDownloader.downloadAndParse(
             FileDownloader.createURL("https://ci.viaversion.com/job/ViaVersion/lastSuccessfulBuild/artifact/*zip*/target.zip"),
-            "viaversion.jar",
+            VIA_VERSION_DOWNLOAD,
             (in, dest) -> {
                 ZipInputStream zis = new ZipInputStream(in);
                 ZipEntry entry;
@@ -336,10 +390,37 @@ public final class TranslatorDiscoverer {
                     return file;
                 }
             });
+    }
 
-        if (viaVersionJar != null) {
-            addToClassPath(viaVersionJar);
-            LOGGER.info("Downloaded ViaVersion");
+    /**
+     * Copies the last download of ViaVersion to the jar which is put on the class path, if it's a valid jar. The jar on
+     * the class path is never written to by downloads, so updates found in the background take effect on the next
+     * launch.
+     */
+    @Nullable
+    private static Path installViaVersion() {
+        Path downloadedJar = FileDownloader.getCacheDir().resolve(VIA_VERSION_DOWNLOAD);
+        Path installedJar = FileDownloader.getCacheDir().resolve(VIA_VERSION_INSTALLED);
+        try {
+            if (Files.exists(downloadedJar)
+                && (!Files.exists(installedJar) || !Files.getLastModifiedTime(downloadedJar).equals(Files.getLastModifiedTime(installedJar)))
+                && isValidJar(downloadedJar)
+            ) {
+                Path tempJar = installedJar.resolveSibling(VIA_VERSION_INSTALLED + ".tmp");
+                Files.copy(downloadedJar, tempJar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                Files.move(tempJar, installedJar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to install downloaded ViaVersion", e);
+        }
+        return Files.exists(installedJar) && isValidJar(installedJar) ? installedJar : null;
+    }
+
+    private static boolean isValidJar(Path file) {
+        try (JarFile ignored = new JarFile(file.toFile())) {
+            return true;
+        } catch (IOException e) {
+            return false;
         }
     }
 
@@ -358,19 +439,97 @@ public final class TranslatorDiscoverer {
             throw new RuntimeException("Failed to add multiconnect via translator to classpath. Report this to https://github.com/Earthcomputer/multiconnect/issues", e);
         }
 
-        try (JarInputStream jar = new JarInputStream(Files.newInputStream(path))) {
-            JarEntry entry;
-            while ((entry = jar.getNextJarEntry()) != null) {
+        try (JarFile jar = new JarFile(path.toFile())) {
+            for (JarEntry entry : (Iterable<JarEntry>) jar.stream()::iterator) {
                 String name = entry.getName();
                 if (name.startsWith("META-INF/jars/") && name.endsWith(".jar")) {
-                    Path destJar = Files.createTempFile(null, ".jar");
-                    destJar.toFile().deleteOnExit();
-                    Files.copy(jar, destJar, StandardCopyOption.REPLACE_EXISTING);
-                    addToClassPath(destJar);
+                    // don't let one bad nested jar stop the others from being added
+                    Path nestedJar;
+                    try {
+                        nestedJar = extractNestedJar(jar, entry);
+                    } catch (IOException e) {
+                        LOGGER.error("Failed to extract nested jar {} from {}", name, path, e);
+                        continue;
+                    }
+                    addToClassPath(nestedJar);
                 }
             }
         } catch (IOException e) {
             LOGGER.error("Failed to read jar file {}", path, e);
         }
     }
+
+    /**
+     * Extracts a nested jar into the nested jar cache, unless it's already there. Cached jars are named after the CRC
+     * and size from the outer jar's central directory, and a cache hit is checked against that CRC, so it only needs
+     * the cached file to be read rather than the nested jar to be decompressed.
+     */
+    private static Path extractNestedJar(JarFile jar, JarEntry entry) throws IOException {
+        String simpleName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+        Path destJar = NESTED_JARS_DIR.resolve(String.format("%08x-%x-%s", entry.getCrc(), entry.getSize(), simpleName));
+        if (isExtracted(destJar, entry)) {
+            try {
+                // mark as used, for garbage collection
+                Files.setLastModifiedTime(destJar, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // the worst that can happen is the jar being extracted again once it's been collected
+                LOGGER.debug("Failed to mark nested jar {} as used", destJar, e);
+            }
+            return destJar;
+        }
+
+        Files.createDirectories(NESTED_JARS_DIR);
+        Path tempJar = Files.createTempFile(NESTED_JARS_DIR, simpleName, ".tmp");
+        try {
+            try (InputStream in = jar.getInputStream(entry)) {
+                Files.copy(in, tempJar, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tempJar, destJar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempJar);
+        }
+        return destJar;
+    }
+
+    private static boolean isExtracted(Path destJar, JarEntry entry) {
+        try {
+            if (!Files.exists(destJar) || Files.size(destJar) != entry.getSize()) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            try (InputStream in = Files.newInputStream(destJar)) {
+                byte[] buffer = new byte[65536];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, n);
+                }
+            }
+            return crc.getValue() == entry.getCrc();
+        } catch (IOException e) {
+            // may have been collected by another instance of the game
+            return false;
+        }
+    }
+
+    private static void collectStaleNestedJars() {
+        if (!Files.isDirectory(NESTED_JARS_DIR)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(NESTED_JAR_MAX_AGE_DAYS);
+        try (Stream<Path> dir = Files.list(NESTED_JARS_DIR)) {
+            for (Path file : (Iterable<Path>) dir::iterator) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.delete(file);
+                        LOGGER.info("Deleted stale nested jar {}", file.getFileName());
+                    }
+                } catch (IOException e) {
+                    // may be in use by another instance of the game
+                    LOGGER.debug("Failed to delete stale nested jar {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("An I/O error occurred listing files in directory", e);
+        }
+    }
 }
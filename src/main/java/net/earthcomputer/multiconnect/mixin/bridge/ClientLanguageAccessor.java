@@ -0,0 +1,20 @@
+package net.earthcomputer.multiconnect.mixin.bridge;
+
+import net.earthcomputer.multiconnect.impl.MixinHelper;
+import net.minecraft.client.resources.language.ClientLanguage;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+import java.util.Map;
+
+@Mixin(ClientLanguage.class)
+public interface ClientLanguageAccessor {
+    @Accessor
+    Map<String, String> getStorage();
+
+    @Invoker("<init>")
+    static ClientLanguage constructor(Map<String, String> storage, boolean defaultRightToLeft) {
+        return MixinHelper.fakeInstance();
+    }
+}
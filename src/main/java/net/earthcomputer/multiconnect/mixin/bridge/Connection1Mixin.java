@@ -1,6 +1,7 @@
 package net.earthcomputer.multiconnect.mixin.bridge;
 
 import io.netty.channel.Channel;
+import net.earthcomputer.multiconnect.debug.PacketRecorder;
 import net.earthcomputer.multiconnect.impl.Multiconnect;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -12,5 +13,6 @@ public class Connection1Mixin {
     @Inject(method = "initChannel", at = @At("RETURN"))
     private void onInitChannel(Channel channel, CallbackInfo ci) {
         Multiconnect.translator.inject(channel);
+        PacketRecorder.install(channel);
     }
 }
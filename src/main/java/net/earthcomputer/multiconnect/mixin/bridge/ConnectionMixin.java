@@ -1,6 +1,7 @@
 package net.earthcomputer.multiconnect.mixin.bridge;
 
 import io.netty.channel.Channel;
+import net.earthcomputer.multiconnect.debug.PacketRecorder;
 import net.earthcomputer.multiconnect.impl.Multiconnect;
 import net.minecraft.network.Connection;
 import org.spongepowered.asm.mixin.Mixin;
@@ -16,5 +17,6 @@ public abstract class ConnectionMixin {
     @Inject(method = {"setEncryptionKey", "setupCompression"}, at = @At("RETURN"))
     private void postPipelineModifiers(CallbackInfo ci) {
         Multiconnect.translator.postPipelineModifiers(channel);
+        PacketRecorder.reinstall(channel);
     }
 }
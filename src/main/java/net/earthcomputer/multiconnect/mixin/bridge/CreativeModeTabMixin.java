@@ -0,0 +1,19 @@
+package net.earthcomputer.multiconnect.mixin.bridge;
+
+import net.earthcomputer.multiconnect.protocols.generic.CreativeItemFilter;
+import net.minecraft.world.item.CreativeModeTab;
+import net.minecraft.world.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.Collection;
+
+@Mixin(CreativeModeTab.class)
+public class CreativeModeTabMixin {
+    @Inject(method = "getDisplayItems", at = @At("RETURN"), cancellable = true)
+    private void filterDisplayItems(CallbackInfoReturnable<Collection<ItemStack>> cir) {
+        cir.setReturnValue(CreativeItemFilter.filter(cir.getReturnValue()));
+    }
+}
@@ -0,0 +1,14 @@
+package net.earthcomputer.multiconnect.mixin.bridge;
+
+import net.minecraft.client.resources.language.I18n;
+import net.minecraft.locale.Language;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+@Mixin(I18n.class)
+public interface I18nAccessor {
+    @Invoker
+    static void callSetLanguage(Language language) {
+        throw new AssertionError();
+    }
+}
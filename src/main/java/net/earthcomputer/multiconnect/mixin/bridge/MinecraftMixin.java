@@ -1,31 +1,28 @@
 package net.earthcomputer.multiconnect.mixin.bridge;
 
-import net.earthcomputer.multiconnect.api.MultiConnectAPI;
 import net.earthcomputer.multiconnect.impl.MulticonnectScheduler;
+import net.earthcomputer.multiconnect.protocols.generic.CreativeItemFilter;
 import net.minecraft.client.Minecraft;
-import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.client.searchtree.SearchRegistry;
+import net.minecraft.client.searchtree.SearchTree;
 import net.minecraft.world.item.ItemStack;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
-import org.spongepowered.asm.mixin.injection.ModifyVariable;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.util.List;
 
 @Mixin(Minecraft.class)
 public class MinecraftMixin {
-    @ModifyVariable(method = "populateSearchTree", at = @At("HEAD"), argsOnly = true)
-    private List<?> modifySearchProvider(List<?> values) {
-        for (int i = 0; i < values.size(); i++) {
-            Object value = values.get(i);
-            if (value instanceof ItemStack stack) {
-                if (!MultiConnectAPI.instance().doesServerKnow(BuiltInRegistries.ITEM, stack.getItem())) {
-                    values.remove(i--);
-                }
-            }
+    @SuppressWarnings("unchecked")
+    @Inject(method = "getSearchTree", at = @At("RETURN"), cancellable = true)
+    private <T> void filterSearchTree(SearchRegistry.Key<T> key, CallbackInfoReturnable<SearchTree<T>> cir) {
+        if (key == SearchRegistry.CREATIVE_NAMES || key == SearchRegistry.CREATIVE_TAGS) {
+            SearchTree<T> tree = cir.getReturnValue();
+            cir.setReturnValue(query -> (List<T>) CreativeItemFilter.filter((List<ItemStack>) tree.search(query)));
         }
-        return values;
     }
 
     @Inject(method = "tick", at = @At("RETURN"))
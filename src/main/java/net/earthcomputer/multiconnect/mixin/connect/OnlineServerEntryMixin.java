@@ -1,5 +1,6 @@
 package net.earthcomputer.multiconnect.mixin.connect;
 
+import net.earthcomputer.multiconnect.connect.PipelinePrewarmer;
 import net.earthcomputer.multiconnect.protocols.ProtocolRegistry;
 import net.minecraft.WorldVersion;
 import net.minecraft.client.gui.screens.multiplayer.ServerSelectionList;
@@ -19,8 +20,10 @@ public class OnlineServerEntryMixin {
     public int redirectProtocolVersion(WorldVersion version) {
         if (!ProtocolRegistry.isSupported(serverData.protocol))
             return version.getProtocolVersion();
-        else
-            return serverData.protocol;
+
+        // the server has been pinged, it's a likely candidate to connect to. Forced protocols are suggested separately
+        PipelinePrewarmer.suggest(serverData.protocol);
+        return serverData.protocol;
     }
 
 }
@@ -1,6 +1,7 @@
 package net.earthcomputer.multiconnect.protocols;
 
 import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.earthcomputer.multiconnect.api.IProtocol;
 import net.earthcomputer.multiconnect.api.ProtocolBehavior;
@@ -12,12 +13,21 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
+/**
+ * Registry of the supported protocols. Registration is rare and happens mostly at startup, so lookups go through an
+ * immutable snapshot which is built on first use and replaced whenever a protocol is registered.
+ */
 public class ProtocolRegistry {
+    // guarded by the class lock
     private static final Int2ObjectOpenHashMap<ProtocolEntry> protocols = new Int2ObjectOpenHashMap<>();
     private static final List<ProtocolEntry> sortedProtocols = new ArrayList<>();
+    // null when a protocol has been registered since it was built
+    @Nullable
+    private static volatile Snapshot snapshot;
 
     static {
         // make sure ConnectionMode class is initialized
@@ -26,20 +36,15 @@ public class ProtocolRegistry {
     }
 
     public static boolean isSupported(int version) {
-        return protocols.containsKey(version);
+        return snapshot().byVersion.containsKey(version);
     }
 
     public static boolean isSupportedName(String name) {
-        for (ProtocolEntry protocol : sortedProtocols) {
-            if (name.equals(protocol.protocol.getName())) {
-                return true;
-            }
-        }
-        return false;
+        return snapshot().byName.containsKey(name);
     }
 
     public static List<IProtocolExt> getProtocols() {
-        return Lists.reverse(sortedProtocols.stream().map(ProtocolEntry::protocol).toList());
+        return snapshot().newestFirst;
     }
 
     public static String getName(int version) {
@@ -51,27 +56,18 @@ public class ProtocolRegistry {
     }
 
     public static IProtocolExt get(int version) {
-        ProtocolEntry entry = protocols.get(version);
-        if (entry == null) {
-            throw new IllegalArgumentException("No protocol registered for version " + version);
-        }
-        return protocols.get(version).protocol;
+        return snapshot().getEntry(version).protocol;
     }
 
     public static ProtocolBehaviorSet getBehaviorSet(int version) {
-        ProtocolEntry entry = protocols.get(version);
-        if (entry == null) {
-            throw new IllegalArgumentException("No protocol registered for version " + version);
-        }
-        int index = Collections.binarySearch(sortedProtocols, entry);
-        return new ProtocolBehaviorSet(sortedProtocols.stream().skip(index).map(ProtocolEntry::behavior).filter(Objects::nonNull).toList());
+        return snapshot().getEntry(version).behaviorSet;
     }
 
     public static ProtocolBehaviorSet latestBehaviorSet() {
         return getBehaviorSet(SharedConstants.getCurrentVersion().getProtocolVersion());
     }
 
-    public static void register(IProtocolExt protocol, @Nullable ProtocolBehavior behavior) {
+    public static synchronized void register(IProtocolExt protocol, @Nullable ProtocolBehavior behavior) {
         ProtocolEntry existingProtocol = protocols.get(protocol.getValue());
         if (existingProtocol != null) {
             throw new IllegalArgumentException("Can't register protocol " + protocol.getName() + " with id " + protocol.getValue() + " because a protocol " + existingProtocol.protocol.getName() + " already exists with the same id");
@@ -103,42 +99,38 @@ public class ProtocolRegistry {
 
         protocols.put(protocol.getValue(), newEntry);
         sortedProtocols.add(index, newEntry);
+        snapshot = null;
     }
 
     public static IProtocolExt getMajorRelease(IProtocolExt protocol) {
-        int index = Collections.binarySearch(sortedProtocols, new ProtocolEntry(protocol, null));
-        if (index < 0) {
+        SnapshotEntry entry = snapshot().byVersion.get(protocol.getValue());
+        if (entry == null) {
             throw new IllegalArgumentException("Trying to get major release for unregistered protocol");
         }
-
-        for (; index >= 0; index--) {
-            protocol = sortedProtocols.get(index).protocol;
-            if (protocol.isMajorRelease()) {
-                return protocol;
-            }
-        }
-        return protocol;
+        return entry.majorRelease;
     }
 
     public static List<IProtocol> getMinorReleases(IProtocolExt protocol) {
-        int index = Collections.binarySearch(sortedProtocols, new ProtocolEntry(protocol, null));
-        if (index < 0) {
+        SnapshotEntry entry = snapshot().byVersion.get(protocol.getValue());
+        if (entry == null) {
             throw new IllegalArgumentException("Trying to get minor releases for unregistered protocol");
         }
-        if (index != 0 && !protocol.isMajorRelease()) {
+        if (entry.minorReleases == null) {
             throw new UnsupportedOperationException("Cannot get the minor releases of a minor release");
         }
+        return entry.minorReleases;
+    }
 
-        List<IProtocol> result = new ArrayList<>();
-        result.add(protocol);
-        for (index++; index < sortedProtocols.size(); index++) {
-            IProtocolExt p = sortedProtocols.get(index).protocol;
-            if (p.isMajorRelease()) {
-                break;
-            }
-            result.add(p);
+    private static Snapshot snapshot() {
+        Snapshot snapshot = ProtocolRegistry.snapshot;
+        return snapshot != null ? snapshot : freeze();
+    }
+
+    private static synchronized Snapshot freeze() {
+        if (snapshot == null) {
+            snapshot = new Snapshot(sortedProtocols);
         }
-        return result;
+        return snapshot;
     }
 
     private record ProtocolEntry(IProtocolExt protocol, @Nullable ProtocolBehavior behavior) implements Comparable<ProtocolEntry> {
@@ -152,4 +144,65 @@ public class ProtocolRegistry {
         }
     }
 
+    /**
+     * @param minorReleases the minor releases if this is a major release or the oldest protocol, otherwise null
+     */
+    private record SnapshotEntry(
+        IProtocolExt protocol,
+        ProtocolBehaviorSet behaviorSet,
+        IProtocolExt majorRelease,
+        @Nullable List<IProtocol> minorReleases
+    ) {
+    }
+
+    private static final class Snapshot {
+        private final Int2ObjectMap<SnapshotEntry> byVersion = new Int2ObjectOpenHashMap<>();
+        private final Map<String, IProtocolExt> byName = new HashMap<>();
+        private final List<IProtocolExt> newestFirst;
+
+        Snapshot(List<ProtocolEntry> sortedProtocols) {
+            int count = sortedProtocols.size();
+
+            // the behaviors of a version are its own and those of every newer version, newest last
+            List<List<ProtocolBehavior>> behaviors = new ArrayList<>(Collections.nCopies(count, null));
+            List<ProtocolBehavior> newerBehaviors = new ArrayList<>();
+            for (int i = count - 1; i >= 0; i--) {
+                ProtocolBehavior behavior = sortedProtocols.get(i).behavior;
+                if (behavior != null) {
+                    newerBehaviors.add(0, behavior);
+                }
+                behaviors.set(i, List.copyOf(newerBehaviors));
+            }
+
+            IProtocolExt majorRelease = count == 0 ? null : sortedProtocols.get(0).protocol;
+            for (int i = 0; i < count; i++) {
+                IProtocolExt protocol = sortedProtocols.get(i).protocol;
+                List<IProtocol> minorReleases = null;
+                if (i == 0 || protocol.isMajorRelease()) {
+                    if (protocol.isMajorRelease()) {
+                        majorRelease = protocol;
+                    }
+                    List<IProtocol> releases = new ArrayList<>();
+                    releases.add(protocol);
+                    for (int j = i + 1; j < count && !sortedProtocols.get(j).protocol.isMajorRelease(); j++) {
+                        releases.add(sortedProtocols.get(j).protocol);
+                    }
+                    minorReleases = List.copyOf(releases);
+                }
+                ProtocolBehaviorSet behaviorSet = new ProtocolBehaviorSet(protocol.getValue(), behaviors.get(i));
+                byVersion.put(protocol.getValue(), new SnapshotEntry(protocol, behaviorSet, majorRelease, minorReleases));
+                byName.put(protocol.getName(), protocol);
+            }
+
+            newestFirst = List.copyOf(Lists.reverse(sortedProtocols.stream().map(ProtocolEntry::protocol).toList()));
+        }
+
+        SnapshotEntry getEntry(int version) {
+            SnapshotEntry entry = byVersion.get(version);
+            if (entry == null) {
+                throw new IllegalArgumentException("No protocol registered for version " + version);
+            }
+            return entry;
+        }
+    }
 }
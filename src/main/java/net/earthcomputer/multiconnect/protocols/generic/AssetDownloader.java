@@ -1,24 +1,43 @@
 package net.earthcomputer.multiconnect.protocols.generic;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.mojang.logging.LogUtils;
 import net.earthcomputer.multiconnect.impl.ConnectionInfo;
+import net.earthcomputer.multiconnect.mixin.bridge.ClientLanguageAccessor;
+import net.earthcomputer.multiconnect.mixin.bridge.I18nAccessor;
 import net.earthcomputer.multiconnect.protocols.ProtocolRegistry;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.SharedConstants;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.resources.language.ClientLanguage;
+import net.minecraft.locale.Language;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.function.BiConsumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -34,17 +53,58 @@ public final class AssetDownloader {
     private static final URL VERSION_MANIFEST = FileDownloader.createURL("https://launchermeta.mojang.com/mc/game/version_manifest.json");
     private static final String ASSET_URL_FORMAT = "https://resources.download.minecraft.net/%s/%s";
 
+    // failed downloads aren't cached, so they are tried again next time
     @Nullable
-    private static Map<String, String> versionUrls;
-    private static final Map<String, String> versionAssetUrls = new HashMap<>();
-    private static final Map<String, Map<String, String>> langFileUrls = new HashMap<>();
-    private static final Map<String, Map<String, Path>> langFiles = new HashMap<>();
+    private static volatile Map<String, String> versionUrls;
+    private static final Object VERSION_URLS_LOCK = new Object();
+    private static final KeyedCache<String> versionAssetUrls = new KeyedCache<>();
+    private static final KeyedCache<Map<String, String>> langFileUrls = new KeyedCache<>();
+    private static final Map<String, CompletableFuture<Path>> langFiles = new ConcurrentHashMap<>();
+    private static final KeyedCache<Map<String, String>> translationOverlays = new KeyedCache<>();
+    // overlays which are being computed in the background, and when overlays which failed may be tried again
+    private static final Set<String> pendingOverlays = ConcurrentHashMap.newKeySet();
+    private static final Map<String, OverlayFailure> overlayFailures = new ConcurrentHashMap<>();
+    private static final long OVERLAY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long OVERLAY_MAX_RETRY_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final ExecutorService OVERLAY_EXECUTOR = new ThreadPoolExecutor(
+        0, 1,
+        30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect translation overlay #%d").build()
+    );
+    private static final int OVERLAY_MAGIC = 0x4d434f56; // MCOV
+    private static final int OVERLAY_FORMAT_VERSION = 1;
+    @Nullable
+    private static volatile LoadedLanguage loadedLanguage;
 
     private AssetDownloader() {
     }
 
-    public static void reloadLanguages() {
-        Minecraft.getInstance().getLanguageManager().onResourceManagerReload(Minecraft.getInstance().getResourceManager());
+    /**
+     * Called when the languages are loaded from the resource packs. Returns the loaded language with the translation
+     * overlay of the current version on top, or without it if it isn't ready yet, in which case it's switched to once
+     * it is.
+     */
+    public static ClientLanguage onLanguageLoaded(ClientLanguage language, String nativeLang) {
+        loadedLanguage = new LoadedLanguage(language, nativeLang);
+        return withTranslationOverlay(language, nativeLang);
+    }
+
+    /**
+     * Replaces the translation overlay with the one of the current version, without reloading the languages
+     */
+    public static void switchTranslationOverlay() {
+        LoadedLanguage loaded = loadedLanguage;
+        if (loaded == null) {
+            // the overlay will be added when the languages are loaded
+            return;
+        }
+
+        // a new instance, so that components which cache their translation against the language are updated
+        ClientLanguage language = withTranslationOverlay(loaded.language, loaded.nativeLang);
+        I18nAccessor.callSetLanguage(language);
+        Language.inject(language);
+
         if (FabricLoader.getInstance().isModLoaded("optifabric")) {
             try {
                 Class.forName("net.optifine.Lang").getMethod("resourcesReloaded").invoke(null);
@@ -54,31 +114,191 @@ public final class AssetDownloader {
         }
     }
 
-    public static void addExtraTranslations(String nativeLang, BiConsumer<String, String> translations) {
-        if (ConnectionInfo.protocolVersion == SharedConstants.getProtocolVersion()) {
+    private static ClientLanguage withTranslationOverlay(ClientLanguage language, String nativeLang) {
+        int protocolVersion = ConnectionInfo.protocolVersion;
+        if (protocolVersion == SharedConstants.getProtocolVersion()) {
+            return language;
+        }
+
+        // computing the overlay may have to download lang files, which mustn't hold up the client thread
+        String version = ProtocolRegistry.getName(protocolVersion);
+        Map<String, String> overlay = translationOverlays.getIfPresent(getOverlayKey(version, nativeLang));
+        if (overlay == null) {
+            computeTranslationOverlayInBackground(protocolVersion, version, nativeLang);
+            overlay = Collections.emptyMap();
+        }
+        Map<String, String> translations = ((ClientLanguageAccessor) language).getStorage();
+        return ClientLanguageAccessor.constructor(new LayeredTranslations(translations, overlay), language.isDefaultRightToLeft());
+    }
+
+    /**
+     * Computes the translation overlay for the given version in the background, so that switching to it later doesn't
+     * have to
+     */
+    public static void prepareTranslationOverlay(int protocolVersion, String nativeLang) {
+        if (protocolVersion != SharedConstants.getProtocolVersion()) {
+            getTranslationOverlay(ProtocolRegistry.getName(protocolVersion), nativeLang);
+        }
+    }
+
+    private static void computeTranslationOverlayInBackground(int protocolVersion, String version, String nativeLang) {
+        String key = getOverlayKey(version, nativeLang);
+        if (!pendingOverlays.add(key)) {
             return;
         }
+        OVERLAY_EXECUTOR.execute(() -> {
+            Map<String, String> overlay;
+            try {
+                overlay = getTranslationOverlay(version, nativeLang);
+            } finally {
+                pendingOverlays.remove(key);
+            }
+            if (overlay != null) {
+                Minecraft.getInstance().execute(() -> {
+                    LoadedLanguage loaded = loadedLanguage;
+                    // don't switch if the version or language has changed since
+                    if (ConnectionInfo.protocolVersion == protocolVersion && loaded != null && loaded.nativeLang.equals(nativeLang)) {
+                        switchTranslationOverlay();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the translations of the given version which are missing or have different arguments in the current
+     * version, or null if they couldn't be loaded. Overlays are computed once per version and language and stored in
+     * the cache directory. Only the overlay being computed is locked, so a download for one version doesn't hold up
+     * getting the overlay of another. After a failure, the overlay isn't tried again until a delay which doubles with
+     * each failure.
+     */
+    @Nullable
+    private static Map<String, String> getTranslationOverlay(String version, String nativeLang) {
+        return translationOverlays.get(getOverlayKey(version, nativeLang), key -> {
+            OverlayFailure failure = overlayFailures.get(key);
+            if (failure != null && System.nanoTime() - failure.retryTime < 0) {
+                return null;
+            }
+
+            Path overlayFile = FileDownloader.getCacheDir().resolve(version).resolve("overlay_" + nativeLang + ".bin");
+            Map<String, String> result = readTranslationOverlay(overlayFile);
+            if (result == null) {
+                result = computeTranslationOverlay(version, nativeLang, overlayFile);
+            }
+            if (result == null) {
+                int failures = failure == null ? 1 : failure.failures + 1;
+                long delay = Math.min(OVERLAY_RETRY_NANOS << Math.min(failures - 1, 16), OVERLAY_MAX_RETRY_NANOS);
+                overlayFailures.put(key, new OverlayFailure(failures, System.nanoTime() + delay));
+                return null;
+            }
+            overlayFailures.remove(key);
+            // immutable, since it's shared between languages
+            return Map.copyOf(result);
+        });
+    }
+
+    private static String getOverlayKey(String version, String nativeLang) {
+        return version + "/" + nativeLang;
+    }
 
-        String currentVersion = ProtocolRegistry.getName(ConnectionInfo.protocolVersion);
+    /**
+     * Computes the overlay and stores it in the overlay file. Returns null if any of the lang files it needs couldn't be
+     * loaded, since the overlay would then contain translations which aren't missing from the current version.
+     */
+    @Nullable
+    private static Map<String, String> computeTranslationOverlay(String currentVersion, String nativeLang, Path overlayFile) {
         String latestVersion = ProtocolRegistry.getName(SharedConstants.getCurrentVersion().getProtocolVersion());
 
-        Map<String, String> currentNative = getTranslations(currentVersion, nativeLang);
-        Map<String, String> currentFallback = getTranslations(currentVersion, "en_us");
-        Map<String, String> latestNative = getTranslations(latestVersion, nativeLang);
-        Map<String, String> latestFallback = getTranslations(latestVersion, "en_us");
+        // downloaded in parallel, and parsed on this thread
+        CompletableFuture<Path> currentNativeFile = getLangFile(currentVersion, nativeLang);
+        CompletableFuture<Path> currentFallbackFile = getLangFile(currentVersion, "en_us");
+        CompletableFuture<Path> latestNativeFile = getLangFile(latestVersion, nativeLang);
+        CompletableFuture<Path> latestFallbackFile = getLangFile(latestVersion, "en_us");
+        Map<String, String> currentNative = getTranslations(currentVersion, nativeLang, currentNativeFile);
+        Map<String, String> currentFallback = getTranslations(currentVersion, "en_us", currentFallbackFile);
+        Map<String, String> latestNative = getTranslations(latestVersion, nativeLang, latestNativeFile);
+        Map<String, String> latestFallback = getTranslations(latestVersion, "en_us", latestFallbackFile);
+        if (currentNative == null || currentFallback == null || latestNative == null || latestFallback == null) {
+            LOGGER.warn("Failed to load the translations needed for the {} overlay of {}, trying again later", nativeLang, currentVersion);
+            return null;
+        }
 
+        Map<String, String> overlay = new HashMap<>();
         for (String key : currentNative.keySet()) {
             if (!latestNative.containsKey(key) || argCount(currentNative.get(key)) != argCount(latestNative.get(key))) {
-                translations.accept(key, currentNative.get(key));
+                overlay.put(key, currentNative.get(key));
             }
         }
         for (String key : currentFallback.keySet()) {
             if (!currentNative.containsKey(key)) {
                 if (!latestFallback.containsKey(key) || argCount(currentFallback.get(key)) != argCount(latestFallback.get(key))) {
-                    translations.accept(key, currentFallback.get(key));
+                    overlay.put(key, currentFallback.get(key));
                 }
             }
         }
+
+        writeTranslationOverlay(overlayFile, overlay);
+        return overlay;
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static Map<String, String> readTranslationOverlay(Path overlayFile) {
+        if (!Files.exists(overlayFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(overlayFile)))) {
+            if (in.readInt() != OVERLAY_MAGIC || in.readInt() != OVERLAY_FORMAT_VERSION || in.readInt() != SharedConstants.getProtocolVersion()) {
+                return null;
+            }
+            int size = in.readInt();
+            Map<String, String> overlay = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                overlay.put(readString(in), readString(in));
+            }
+            return overlay;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read translation overlay {}, recomputing it", overlayFile, e);
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    static void writeTranslationOverlay(Path overlayFile, Map<String, String> overlay) {
+        try {
+            Files.createDirectories(overlayFile.getParent());
+            Path tempFile = Files.createTempFile(overlayFile.getParent(), overlayFile.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    out.writeInt(OVERLAY_MAGIC);
+                    out.writeInt(OVERLAY_FORMAT_VERSION);
+                    // the overlay is a diff against the current version
+                    out.writeInt(SharedConstants.getProtocolVersion());
+                    out.writeInt(overlay.size());
+                    for (var entry : overlay.entrySet()) {
+                        writeString(out, entry.getKey());
+                        writeString(out, entry.getValue());
+                    }
+                }
+                Files.move(tempFile, overlayFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write translation overlay {}", overlayFile, e);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
     }
 
     private static int argCount(String value) {
@@ -90,132 +310,152 @@ public final class AssetDownloader {
         return count;
     }
 
+    @Nullable
     private static Map<String, String> getVersionUrls() {
-        if (versionUrls != null) {
-            return versionUrls;
+        Map<String, String> urls = versionUrls;
+        if (urls != null) {
+            return urls;
         }
 
-        VersionManifest manifest = FileDownloader.downloadJson(VERSION_MANIFEST, "version_manifest.json", VersionManifest.class);
-        if (manifest == null) {
-            return versionUrls = Collections.emptyMap();
-        }
+        synchronized (VERSION_URLS_LOCK) {
+            if (versionUrls != null) {
+                return versionUrls;
+            }
+
+            VersionManifest manifest = FileDownloader.downloadJson(VERSION_MANIFEST, "version_manifest.json", VersionManifest.class);
+            if (manifest == null) {
+                return null;
+            }
 
-        versionUrls = new HashMap<>();
-        for (VersionManifest.Version version : manifest.versions) {
-            if (ProtocolRegistry.isSupportedName(version.id)) {
-                versionUrls.put(version.id, version.url);
+            urls = new HashMap<>();
+            for (VersionManifest.Version version : manifest.versions) {
+                if (ProtocolRegistry.isSupportedName(version.id)) {
+                    urls.put(version.id, version.url);
+                }
             }
+            return versionUrls = Collections.unmodifiableMap(urls);
         }
-        return versionUrls;
     }
 
     @Nullable
     private static String getAssetUrl(String version) {
-        if (versionAssetUrls.containsKey(version)) {
-            return versionAssetUrls.get(version);
-        }
-        VersionFile versionFile = getVersionFile(version);
-        if (versionFile == null) {
-            versionAssetUrls.put(version, null);
-            return null;
-        }
-
-        versionAssetUrls.put(version, versionFile.assetIndex.url);
-        return versionFile.assetIndex.url;
+        return versionAssetUrls.get(version, key -> {
+            VersionFile versionFile = getVersionFile(version);
+            return versionFile == null ? null : versionFile.assetIndex.url;
+        });
     }
 
     @Nullable
     private static VersionFile getVersionFile(String version) {
+        Map<String, String> urls = getVersionUrls();
+        if (urls == null) {
+            return null;
+        }
+
         URL versionUrl;
         try {
-            String url = getVersionUrls().get(version);
+            String url = urls.get(version);
             if (url == null) {
                 LOGGER.error("No version URL found for version {}", version);
-                versionAssetUrls.put(version, null);
                 return null;
             }
             versionUrl = new URL(url);
         } catch (MalformedURLException e) {
             LOGGER.error("Malformed version URL for version {}", version);
-            versionAssetUrls.put(version, null);
             return null;
         }
 
         return FileDownloader.downloadJson(versionUrl, version + "/" + version + ".json", VersionFile.class);
     }
 
+    @Nullable
     private static Map<String, String> getLangFileUrls(String version) {
-        if (langFileUrls.containsKey(version)) {
-            return langFileUrls.get(version);
-        }
-
-        URL assetUrl;
-        try {
-            String url = getAssetUrl(version);
-            if (url == null) {
-                LOGGER.error("No asset URL found for version {}", version);
-                langFileUrls.put(version, Collections.emptyMap());
-                return Collections.emptyMap();
+        return langFileUrls.get(version, key -> {
+            URL assetUrl;
+            try {
+                String url = getAssetUrl(version);
+                if (url == null) {
+                    LOGGER.error("No asset URL found for version {}", version);
+                    return null;
+                }
+                assetUrl = new URL(url);
+            } catch (MalformedURLException e) {
+                LOGGER.error("Malformed asset URL for version {}", version);
+                return null;
             }
-            assetUrl = new URL(url);
-        } catch (MalformedURLException e) {
-            LOGGER.error("Malformed asset URL for version {}", version);
-            langFileUrls.put(version, Collections.emptyMap());
-            return Collections.emptyMap();
-        }
 
-        AssetFile assets = FileDownloader.downloadJson(assetUrl, version + "/indexes.json", AssetFile.class);
-        if (assets == null) {
-            langFileUrls.put(version, Collections.emptyMap());
-            return Collections.emptyMap();
-        }
-
-        Map<String, String> urls = new HashMap<>();
-        assets.objects.forEach((k, v) -> {
-            Matcher matcher = LANG_ASSET_PATTERN.matcher(k);
-            if (matcher.matches() && v.hash.length() >= 2) {
-                urls.put(matcher.group(1).toLowerCase(Locale.ENGLISH), String.format(ASSET_URL_FORMAT, v.hash.substring(0, 2), v.hash));
+            AssetFile assets = FileDownloader.downloadJson(assetUrl, version + "/indexes.json", AssetFile.class);
+            if (assets == null) {
+                return null;
             }
-        });
 
-        langFileUrls.put(version, urls);
-        return urls;
+            Map<String, String> urls = new HashMap<>();
+            assets.objects.forEach((k, v) -> {
+                Matcher matcher = LANG_ASSET_PATTERN.matcher(k);
+                if (matcher.matches() && v.hash.length() >= 2) {
+                    urls.put(matcher.group(1).toLowerCase(Locale.ENGLISH), String.format(ASSET_URL_FORMAT, v.hash.substring(0, 2), v.hash));
+                }
+            });
+            return Collections.unmodifiableMap(urls);
+        });
     }
 
-    @Nullable
-    private static Path getLangFile(String version, String langCode) {
-        langCode = langCode.toLowerCase(Locale.ENGLISH);
+    /**
+     * Starts downloading the lang file on a download thread. The future completes with null if the version doesn't have
+     * the language, and completes exceptionally if the asset index or the lang file couldn't be downloaded.
+     */
+    private static CompletableFuture<Path> getLangFile(String version, String langCode) {
+        String lang = langCode.toLowerCase(Locale.ENGLISH);
         // en_us is in the jar file rather than in the assets, we don't want to have to download the whole jar
-        if ("en_us".equals(langCode)) {
-            langCode = "en_gb";
+        if ("en_us".equals(lang)) {
+            lang = "en_gb";
         }
 
-        if (langFiles.computeIfAbsent(version, k -> new HashMap<>()).containsKey(langCode)) {
-            return langFiles.get(version).get(langCode);
+        Map<String, String> urls = getLangFileUrls(version);
+        if (urls == null) {
+            return CompletableFuture.failedFuture(new IOException("Failed to get the asset index of " + version));
+        }
+        String url = urls.get(lang);
+        if (url == null) {
+            return CompletableFuture.completedFuture(null);
         }
-
         URL langUrl;
         try {
-            String url = getLangFileUrls(version).get(langCode);
-            if (url == null) {
-                langFiles.get(version).put(langCode, null);
-                return null;
-            }
             langUrl = new URL(url);
         } catch (MalformedURLException e) {
-            LOGGER.error("Malformed lang url for {}/{}", version, langCode);
-            langFiles.get(version).put(langCode, null);
-            return null;
+            return CompletableFuture.failedFuture(e);
         }
 
-        Path langFile = FileDownloader.download(langUrl, version + "/" + langCode + ".lang");
-        langFiles.get(version).put(langCode, langFile);
-        return langFile;
+        String dest = version + "/" + lang + ".lang";
+        CompletableFuture<Path> langFile = langFiles.computeIfAbsent(dest, key -> {
+            // asset urls end with the SHA-1 of the asset
+            String hash = langUrl.getPath().substring(langUrl.getPath().lastIndexOf('/') + 1);
+            return FileDownloader.downloadAsync(langUrl, dest, FileDownloader.Checksum.sha1(hash));
+        });
+        return langFile.thenApply(path -> {
+            if (path == null) {
+                // don't remember the failure, so that the download is tried again next time
+                langFiles.remove(dest, langFile);
+                throw new CompletionException(new IOException("Failed to download lang file " + dest));
+            }
+            return path;
+        });
     }
 
+    /**
+     * Returns the translations of the given version, which are empty if the version doesn't have the language. Returns
+     * null if they couldn't be loaded.
+     */
     @SuppressWarnings("unchecked")
-    private static Map<String, String> getTranslations(String version, String langCode) {
-        Path langFile = getLangFile(version, langCode);
+    @Nullable
+    private static Map<String, String> getTranslations(String version, String langCode, CompletableFuture<Path> langFileFuture) {
+        Path langFile;
+        try {
+            langFile = langFileFuture.join();
+        } catch (CompletionException e) {
+            LOGGER.error("Failed to get lang file {}/{}", version, langCode, e.getCause());
+            return null;
+        }
         if (langFile == null) {
             return Collections.emptyMap();
         }
@@ -231,7 +471,7 @@ public final class AssetDownloader {
             // expected - old lang file format
         } catch (IOException e) {
             LOGGER.error("Failed to read lang file {}/{}", version, langCode, e);
-            return Collections.emptyMap();
+            return null;
         }
 
         Map<String, String> translations = new HashMap<>();
@@ -244,13 +484,13 @@ public final class AssetDownloader {
             });
         } catch (IOException e) {
             LOGGER.error("Failed to read lang file in old format {}/{}", version, langCode, e);
-            return Collections.emptyMap();
+            return null;
         }
         return translations;
     }
 
     @Nullable
-    public static Path downloadServer(String version) {
+    public static synchronized Path downloadServer(String version) {
         VersionFile versionFile = getVersionFile(version);
         if (versionFile == null) {
             return null;
@@ -296,4 +536,45 @@ public final class AssetDownloader {
     static class Asset {
         String url;
     }
+
+    private record LoadedLanguage(ClientLanguage language, String nativeLang) {
+    }
+
+    private record OverlayFailure(int failures, long retryTime) {
+    }
+
+    /**
+     * Values loaded on demand, with a lock per key rather than one for the whole cache
+     */
+    private static final class KeyedCache<T> {
+        private final Map<String, T> values = new ConcurrentHashMap<>();
+        private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+        @Nullable
+        T getIfPresent(String key) {
+            return values.get(key);
+        }
+
+        /**
+         * Returns the value for the key, loading it if it isn't cached yet. The loader returns null on failure, which
+         * isn't cached.
+         */
+        @Nullable
+        T get(String key, Function<String, T> loader) {
+            T value = values.get(key);
+            if (value != null) {
+                return value;
+            }
+            synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+                value = values.get(key);
+                if (value == null) {
+                    value = loader.apply(key);
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                }
+                return value;
+            }
+        }
+    }
 }
@@ -0,0 +1,98 @@
+package net.earthcomputer.multiconnect.protocols.generic;
+
+import com.mojang.logging.LogUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Somewhere {@link FileDownloader} can find files other than the internet. Sources are asked in order before going
+ * online.
+ */
+public interface ContentSource {
+    /**
+     * Returns the local file with the content of the given URL, or null if this source doesn't have it
+     */
+    @Nullable
+    Path find(URL url);
+
+    /**
+     * Called after a file has been downloaded from the internet, so that caching sources can keep a copy
+     */
+    default void store(URL url, Path file) {
+    }
+
+    /**
+     * Whether this source is a cache, whose files may be older than what the internet has. Caches are only used before
+     * going online for downloads with a checksum, and otherwise only when the internet can't be used.
+     */
+    default boolean isCache() {
+        return false;
+    }
+
+    /**
+     * A directory laid out by host and path, so {@code https://launchermeta.mojang.com/mc/game/version_manifest.json}
+     * is at {@code <root>/launchermeta.mojang.com/mc/game/version_manifest.json}. Shared caches also store what is
+     * downloaded from the internet, and are treated as {@linkplain #isCache() caches}.
+     */
+    record Directory(Path root, boolean shared) implements ContentSource {
+        private static final Logger LOGGER = LogUtils.getLogger();
+
+        public Directory {
+            root = root.toAbsolutePath().normalize();
+        }
+
+        @Override
+        @Nullable
+        public Path find(URL url) {
+            Path file = resolve(url);
+            return file != null && Files.isRegularFile(file) ? file : null;
+        }
+
+        @Override
+        public boolean isCache() {
+            return shared;
+        }
+
+        @Override
+        public void store(URL url, Path file) {
+            if (!shared) {
+                return;
+            }
+            Path dest = resolve(url);
+            if (dest == null) {
+                return;
+            }
+            try {
+                Files.createDirectories(dest.getParent());
+                Path tempFile = Files.createTempFile(dest.getParent(), dest.getFileName().toString(), ".tmp");
+                try {
+                    Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    Files.move(tempFile, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to store {} in shared cache {}", url, root, e);
+            }
+        }
+
+        @Nullable
+        private Path resolve(URL url) {
+            // characters such as * appear in some urls, but aren't allowed in file names on all platforms
+            String path = (url.getHost() + url.getPath()).replaceAll("[<>:\"|?*\\\\]", "_");
+            try {
+                Path file = root.resolve(path).normalize();
+                return file.startsWith(root) ? file : null;
+            } catch (InvalidPathException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package net.earthcomputer.multiconnect.protocols.generic;
+
+import net.earthcomputer.multiconnect.impl.Multiconnect;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hides the items the server doesn't know about from the creative inventory. The creative tabs and search trees always
+ * contain every item, so that switching versions never rebuilds them, and this filter is applied to what they return.
+ */
+public final class CreativeItemFilter {
+    private CreativeItemFilter() {
+    }
+
+    public static Collection<ItemStack> filter(Collection<ItemStack> stacks) {
+        BitSet knownItems = getKnownItems();
+        return allKnown(knownItems) ? stacks : filter(stacks, knownItems);
+    }
+
+    public static List<ItemStack> filter(List<ItemStack> stacks) {
+        BitSet knownItems = getKnownItems();
+        return allKnown(knownItems) ? stacks : filter(stacks, knownItems);
+    }
+
+    private static List<ItemStack> filter(Collection<ItemStack> stacks, BitSet knownItems) {
+        List<ItemStack> result = new ArrayList<>(stacks.size());
+        for (ItemStack stack : stacks) {
+            if (knownItems.get(BuiltInRegistries.ITEM.getId(stack.getItem()))) {
+                result.add(stack);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet getKnownItems() {
+        // the translator caches this per connection, don't copy it like the API does
+        return Multiconnect.translator.doesServerKnowAll(BuiltInRegistries.ITEM.key().location().toString());
+    }
+
+    private static boolean allKnown(BitSet knownItems) {
+        return knownItems.nextClearBit(0) >= BuiltInRegistries.ITEM.size();
+    }
+}
@@ -1,5 +1,7 @@
 package net.earthcomputer.multiconnect.protocols.generic;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.mojang.logging.LogUtils;
 import net.earthcomputer.multiconnect.impl.Multiconnect;
@@ -8,24 +10,116 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.*;
-import java.net.HttpURLConnection;
+import java.net.ConnectException;
+import java.net.URI;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * Downloads files into the multiconnect cache directory. All downloads share one {@link HttpClient}, and at most
+ * {@code -Dmulticonnect.maxConcurrentDownloads} (4 by default) run at once. Response bodies are written to a
+ * {@code .part} file first, so an interrupted download is resumed with an HTTP range request next time.
+ *
+ * <p>Before going online, files are looked for in the {@link ContentSource}s: the mirror directory or {@code file://}
+ * URL in {@code -Dmulticonnect.downloadMirror}, then the shared cache directory in {@code -Dmulticonnect.sharedCache}.
+ * The shared cache is only used first for downloads with a checksum, other files could have changed since they were
+ * cached, so they are fetched again and the cache is only a fallback. With {@code -Dmulticonnect.offline=true} the
+ * internet is never used.
+ */
 public final class FileDownloader {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final Gson GSON = new Gson();
+    private static final int MAX_CONCURRENT_DOWNLOADS = Integer.getInteger("multiconnect.maxConcurrentDownloads", 4);
+    private static final boolean OFFLINE = Boolean.getBoolean("multiconnect.offline");
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private static final Semaphore DOWNLOAD_PERMITS = new Semaphore(MAX_CONCURRENT_DOWNLOADS);
+    private static final ExecutorService DOWNLOAD_EXECUTOR = createDownloadExecutor();
+    private static final List<ContentSource> CONTENT_SOURCES = createContentSources();
 
     private FileDownloader() {
     }
     private static final Path CACHE_DIR = FabricLoader.getInstance().getConfigDir().resolve("multiconnect").resolve("caches");
 
+    private static ExecutorService createDownloadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_CONCURRENT_DOWNLOADS, MAX_CONCURRENT_DOWNLOADS,
+            30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect download #%d").build()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static List<ContentSource> createContentSources() {
+        List<ContentSource> sources = new CopyOnWriteArrayList<>();
+        Path mirror = parseDirectory("multiconnect.downloadMirror");
+        if (mirror != null) {
+            sources.add(new ContentSource.Directory(mirror, false));
+        }
+        Path sharedCache = parseDirectory("multiconnect.sharedCache");
+        if (sharedCache != null) {
+            sources.add(new ContentSource.Directory(sharedCache, true));
+        }
+        return sources;
+    }
+
+    @Nullable
+    private static Path parseDirectory(String systemProp) {
+        String value = System.getProperty(systemProp);
+        if (value == null) {
+            return null;
+        }
+        try {
+            Path dir = value.startsWith("file:") ? Path.of(new URI(value)) : Path.of(value);
+            return dir.toAbsolutePath().normalize();
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+            LOGGER.error("Invalid directory {} in {}", value, systemProp);
+            return null;
+        }
+    }
+
+    /**
+     * Adds a source to look for files in before the internet, after the configured mirror and shared cache
+     */
+    public static void addContentSource(ContentSource source) {
+        CONTENT_SOURCES.add(source);
+    }
+
     public static URL createURL(String url) {
         try {
             return new URL(url);
@@ -34,6 +128,21 @@ public final class FileDownloader {
         }
     }
 
+    public static Path getCacheDir() {
+        return CACHE_DIR;
+    }
+
+    /**
+     * The client used for all of multiconnect's HTTP requests, so connections are reused between them
+     */
+    public static HttpClient getHttpClient() {
+        return HTTP_CLIENT;
+    }
+
+    public static String getUserAgent() {
+        return "multiconnect " + Multiconnect.getVersion();
+    }
+
     // Downloads a json file if un-downloaded, or if it has a json syntax error (corrupted)
     @Nullable
     public static <T> T downloadJson(URL url, String dest, Class<T> type) {
@@ -46,7 +155,12 @@ public final class FileDownloader {
 
     @Nullable
     public static Path download(URL url, String dest) {
-        return download(url, dest, Downloader.DEFAULT, false);
+        return download(url, dest, (Checksum) null);
+    }
+
+    @Nullable
+    public static Path download(URL url, String dest, @Nullable Checksum checksum) {
+        return download(url, dest, Downloader.DEFAULT, false, checksum);
     }
 
     @Nullable
@@ -56,7 +170,19 @@ public final class FileDownloader {
 
     @Nullable
     public static <T> T downloadAndParse(URL url, String dest, Downloader downloader, Parser<T> parser) {
-        Path downloadedFile = download(url, dest, downloader, false);
+        return downloadAndParse(url, dest, downloader, null, parser);
+    }
+
+    /**
+     * Downloads on a download thread. The future completes with null if the download fails, like {@link #download}.
+     */
+    public static CompletableFuture<Path> downloadAsync(URL url, String dest, @Nullable Checksum checksum) {
+        return CompletableFuture.supplyAsync(() -> download(url, dest, checksum), DOWNLOAD_EXECUTOR);
+    }
+
+    @Nullable
+    public static <T> T downloadAndParse(URL url, String dest, Downloader downloader, @Nullable Checksum checksum, Parser<T> parser) {
+        Path downloadedFile = download(url, dest, downloader, false, checksum);
         if (downloadedFile == null) {
             return null;
         }
@@ -74,7 +200,7 @@ public final class FileDownloader {
         } catch (IOException e1) {
             LOGGER.error("Failed to delete file {}", downloadedFile);
         }
-        downloadedFile = download(url, dest, downloader, true);
+        downloadedFile = download(url, dest, downloader, true, checksum);
         if (downloadedFile == null) {
             return null;
         }
@@ -92,62 +218,380 @@ public final class FileDownloader {
     }
 
     @Nullable
-    private static Path download(URL url, String dest, Downloader downloader, boolean force) {
+    private static Path download(URL url, String dest, Downloader downloader, boolean force, @Nullable Checksum checksum) {
         Path destFile = CACHE_DIR.resolve(dest);
         Path etagFile = CACHE_DIR.resolve(dest + ".etag");
+        Path partFile = CACHE_DIR.resolve(dest + ".part");
+        Path partInfoFile = CACHE_DIR.resolve(dest + ".part.info");
 
         boolean destExists = Files.exists(destFile);
 
-        try {
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            if (!force && destExists && Files.exists(etagFile)) {
-                String etag = Files.readString(etagFile);
-                connection.setRequestProperty("If-None-Match", etag);
+        // a forced download means the file we had was bad, so don't copy it from the same source again
+        if (!force) {
+            // caches may be out of date, so they are only used before going online when the checksum is known
+            Path result = copyFromContentSources(url, destFile, destExists, downloader, checksum, checksum != null);
+            if (result != null) {
+                return result;
             }
+        }
 
-            connection.setRequestProperty("Accept-Encoding", "gzip");
-            connection.setRequestProperty("User-Agent", "multiconnect " + Multiconnect.getVersion());
-
-            connection.connect();
+        Path result;
+        if (OFFLINE) {
+            result = destExists ? destFile : null;
+        } else {
+            result = downloadOnline(url, dest, destFile, etagFile, partFile, partInfoFile, destExists, downloader, force, checksum);
+        }
+        if (result == null && !force) {
+            // the internet couldn't be reached or the download failed, a cached copy is better than nothing
+            result = copyFromContentSources(url, destFile, destExists, downloader, checksum, true);
+        }
+        return result;
+    }
 
-            int responseCode = connection.getResponseCode();
-            if ((responseCode < 200 || responseCode > 299) && responseCode != HttpURLConnection.HTTP_NOT_MODIFIED) {
-                throw new IOException("Got HTTP " + responseCode + " from " + url);
+    @Nullable
+    private static Path copyFromContentSources(URL url, Path destFile, boolean destExists, Downloader downloader, @Nullable Checksum checksum, boolean includeCaches) {
+        for (ContentSource source : CONTENT_SOURCES) {
+            if (!includeCaches && source.isCache()) {
+                continue;
             }
-
-            long lastModified = connection.getHeaderFieldDate("Last-Modified", -1);
-            if (!force && destExists && (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED || (lastModified > 0 && Files.getLastModifiedTime(destFile).toMillis() >= lastModified))) {
+            Path sourceFile = source.find(url);
+            if (sourceFile == null) {
+                continue;
+            }
+            try {
+                if (destExists && Files.getLastModifiedTime(destFile).compareTo(Files.getLastModifiedTime(sourceFile)) >= 0) {
+                    return destFile;
+                }
+                if (destFile.getParent() != null) {
+                    Files.createDirectories(destFile.getParent());
+                }
+                writeDownloadedFile(sourceFile, "identity", destFile, downloader, checksum);
                 return destFile;
+            } catch (IOException e) {
+                LOGGER.warn("Failed to use {} for {}, trying the next source", sourceFile, url, e);
             }
+        }
+        return null;
+    }
 
-            if (destFile.getParent() != null) {
-                Files.createDirectories(destFile.getParent());
+    @Nullable
+    private static Path downloadOnline(
+        URL url,
+        String dest,
+        Path destFile,
+        Path etagFile,
+        Path partFile,
+        Path partInfoFile,
+        boolean destExists,
+        Downloader downloader,
+        boolean force,
+        @Nullable Checksum checksum
+    ) {
+        DOWNLOAD_PERMITS.acquireUninterruptibly();
+        try {
+            String etag = !force && destExists && Files.exists(etagFile) ? Files.readString(etagFile) : null;
+            PartInfo partInfo = force ? null : PartInfo.read(partFile, partInfoFile);
+            HttpResponse<InputStream> response = send(url, etag, partInfo);
+            if (partInfo != null && !canUseResumeResponse(response, partInfo)) {
+                // e.g. a 416 because the part file already holds the whole resource, which would happen every time
+                LOGGER.info("Could not resume download of {} (HTTP {}), starting over", dest, response.statusCode());
+                response.body().close();
+                Files.deleteIfExists(partFile);
+                Files.deleteIfExists(partInfoFile);
+                partInfo = null;
+                response = send(url, etag, null);
             }
-            try (InputStream stream = connection.getInputStream()) {
-                InputStream is = stream;
-                if ("gzip".equals(connection.getContentEncoding())) {
-                    is = new GZIPInputStream(stream);
+
+            Path tempFile = CACHE_DIR.resolve(dest + ".download");
+            String contentEncoding;
+            boolean resumed;
+            try (InputStream body = response.body()) {
+                HttpHeaders headers = response.headers();
+                int responseCode = response.statusCode();
+                if ((responseCode < 200 || responseCode > 299) && responseCode != 304) {
+                    throw new IOException("Got HTTP " + responseCode + " from " + url);
+                }
+
+                long lastModified = headers.firstValue("Last-Modified").map(FileDownloader::parseHttpDate).orElse(-1L);
+                if (!force && destExists && (responseCode == 304 || (lastModified > 0 && Files.getLastModifiedTime(destFile).toMillis() >= lastModified))) {
+                    return destFile;
                 }
-                downloader.download(is, destFile);
-            } catch (IOException e) {
-                Files.deleteIfExists(destFile);
-                throw e;
-            }
 
-            if (lastModified > 0) {
-                Files.setLastModifiedTime(destFile, FileTime.fromMillis(lastModified));
+                contentEncoding = getContentEncoding(response);
+                resumed = partInfo != null && partInfo.isResumedBy(responseCode, contentEncoding);
+                if (responseCode == 206 && !resumed) {
+                    Files.deleteIfExists(partFile);
+                    Files.deleteIfExists(partInfoFile);
+                    throw new IOException("Got unexpected partial content from " + url);
+                }
+
+                if (partFile.getParent() != null) {
+                    Files.createDirectories(partFile.getParent());
+                }
+                if (resumed) {
+                    LOGGER.info("Resuming download of {} from {} bytes", dest, partInfo.length);
+                    // if this fails part way through, the part file is kept to be resumed next time
+                    try (OutputStream out = Files.newOutputStream(partFile, StandardOpenOption.APPEND)) {
+                        body.transferTo(out);
+                    }
+                } else {
+                    String validator = headers.firstValue("ETag").or(() -> headers.firstValue("Last-Modified")).orElse(null);
+                    if (validator != null) {
+                        PartInfo.write(partInfoFile, validator, contentEncoding);
+                    } else {
+                        Files.deleteIfExists(partInfoFile);
+                    }
+                    // decoded and checked as it arrives, the part file is only kept to resume from if this fails part way
+                    ReceivingInputStream received = new ReceivingInputStream(body, Files.newOutputStream(partFile));
+                    try (received) {
+                        writeDecoded(received, contentEncoding, tempFile, downloader, checksum);
+                        received.transferTo(OutputStream.nullOutputStream());
+                    } catch (IOException e) {
+                        if (!received.bodyFailed) {
+                            // the whole body arrived and was bad, there is nothing worth resuming
+                            Files.deleteIfExists(partFile);
+                            Files.deleteIfExists(partInfoFile);
+                        }
+                        throw e;
+                    }
+                }
+
+                if (lastModified > 0) {
+                    Files.setLastModifiedTime(partFile, FileTime.fromMillis(lastModified));
+                }
+                String newEtag = headers.firstValue("ETag").orElse(null);
+                if (newEtag != null) {
+                    Files.writeString(etagFile, newEtag);
+                }
             }
 
-            String etag = connection.getHeaderField("ETag");
-            if (etag != null) {
-                Files.writeString(etagFile, etag);
+            Files.deleteIfExists(partInfoFile);
+            try {
+                if (resumed) {
+                    // the start of the content is only in the part file, so it has to be read back
+                    writeDownloadedFile(partFile, contentEncoding, destFile, downloader, checksum);
+                } else {
+                    Files.move(tempFile, destFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    Files.setLastModifiedTime(destFile, Files.getLastModifiedTime(partFile));
+                }
+                // sources store the decoded content of the url
+                Path content = "identity".equals(contentEncoding) ? partFile : downloader == Downloader.DEFAULT ? destFile : null;
+                if (content != null) {
+                    for (ContentSource source : CONTENT_SOURCES) {
+                        source.store(url, content);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(partFile);
+                Files.deleteIfExists(tempFile);
             }
             return destFile;
-        } catch (UnknownHostException e) {
+        } catch (UnknownHostException | ConnectException | HttpTimeoutException e) {
             return Files.exists(destFile) ? destFile : null;
         } catch (IOException e) {
             LOGGER.error("Error downloading file {} from {}", dest, url, e);
             return null;
+        } catch (URISyntaxException e) {
+            LOGGER.error("Invalid download URL {}", url, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while downloading file {} from {}", dest, url);
+            return null;
+        } finally {
+            DOWNLOAD_PERMITS.release();
+        }
+    }
+
+    @VisibleForTesting
+    static void writeDownloadedFile(Path partFile, String contentEncoding, Path destFile, Downloader downloader, @Nullable Checksum checksum) throws IOException {
+        try (InputStream stream = Files.newInputStream(partFile)) {
+            writeDecoded(stream, contentEncoding, destFile, downloader, checksum);
+        }
+        Files.setLastModifiedTime(destFile, Files.getLastModifiedTime(partFile));
+    }
+
+    private static void writeDecoded(InputStream stream, String contentEncoding, Path destFile, Downloader downloader, @Nullable Checksum checksum) throws IOException {
+        MessageDigest digest = checksum == null ? null : checksum.createDigest();
+        try {
+            InputStream is = "gzip".equals(contentEncoding) ? new GZIPInputStream(stream) : stream;
+            if (digest != null) {
+                is = new DigestInputStream(is, digest);
+            }
+            // the checksum is computed as the content is written
+            downloader.download(is, destFile);
+            if (digest != null) {
+                is.transferTo(OutputStream.nullOutputStream());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(destFile);
+            throw e;
+        }
+
+        if (digest != null) {
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (!hash.equalsIgnoreCase(checksum.hash())) {
+                Files.deleteIfExists(destFile);
+                throw new IOException("Checksum mismatch for " + destFile.getFileName() + ", expected " + checksum.hash() + " but got " + hash);
+            }
+        }
+    }
+
+    private static HttpResponse<InputStream> send(URL url, @Nullable String etag, @Nullable PartInfo partInfo) throws IOException, InterruptedException, URISyntaxException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(url.toURI())
+            .header("Accept-Encoding", "gzip")
+            .header("User-Agent", getUserAgent());
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (partInfo != null) {
+            // only resumes if the content hasn't changed since the partial download
+            request.header("Range", "bytes=" + partInfo.length + "-").header("If-Range", partInfo.validator);
+        }
+        return HTTP_CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Whether a response to a resumed request can be used, either because it continues the partial download or
+     * because the server ignored the range
+     */
+    private static boolean canUseResumeResponse(HttpResponse<InputStream> response, PartInfo partInfo) {
+        int responseCode = response.statusCode();
+        if (responseCode == 206) {
+            return partInfo.isResumedBy(responseCode, getContentEncoding(response));
+        }
+        return (responseCode >= 200 && responseCode <= 299) || responseCode == 304;
+    }
+
+    private static String getContentEncoding(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Encoding").orElse("identity");
+    }
+
+    private static long parseHttpDate(String date) {
+        try {
+            return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Copies the response body into the part file as it's read
+     */
+    private static final class ReceivingInputStream extends FilterInputStream {
+        private final OutputStream partOut;
+        private boolean bodyFailed;
+
+        private ReceivingInputStream(InputStream body, OutputStream partOut) {
+            super(body);
+            this.partOut = partOut;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                bodyFailed = true;
+                throw e;
+            }
+            if (b != -1) {
+                partOut.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n;
+            try {
+                n = super.read(b, off, len);
+            } catch (IOException e) {
+                bodyFailed = true;
+                throw e;
+            }
+            if (n > 0) {
+                partOut.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes still have to go in the part file
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            return Math.max(read(buf, 0, buf.length), 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                partOut.close();
+            }
+        }
+    }
+
+    /**
+     * What is known about a partial download, so that it can be resumed. The validator is the ETag or Last-Modified
+     * header the partial download was started with.
+     */
+    @VisibleForTesting
+    record PartInfo(long length, String validator, String contentEncoding) {
+        @Nullable
+        static PartInfo read(Path partFile, Path partInfoFile) throws IOException {
+            if (!Files.exists(partFile) || !Files.exists(partInfoFile)) {
+                return null;
+            }
+            List<String> lines = Files.readAllLines(partInfoFile);
+            long length = Files.size(partFile);
+            if (lines.size() < 2 || length == 0) {
+                return null;
+            }
+            return new PartInfo(length, lines.get(0), lines.get(1));
+        }
+
+        static void write(Path partInfoFile, String validator, String contentEncoding) throws IOException {
+            Files.write(partInfoFile, List.of(validator, contentEncoding));
+        }
+
+        /**
+         * Whether a response continues this partial download, rather than the server sending something else
+         */
+        boolean isResumedBy(int responseCode, String contentEncoding) {
+            return responseCode == 206 && this.contentEncoding.equals(contentEncoding);
+        }
+    }
+
+    /**
+     * The expected hash of a downloaded file, as a hex string
+     */
+    public record Checksum(String algorithm, String hash) {
+        public static Checksum sha1(String hash) {
+            return new Checksum("SHA-1", hash);
+        }
+
+        public static Checksum sha256(String hash) {
+            return new Checksum("SHA-256", hash);
+        }
+
+        public static Checksum sha512(String hash) {
+            return new Checksum("SHA-512", hash);
+        }
+
+        private MessageDigest createDigest() {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unknown checksum algorithm " + algorithm, e);
+            }
         }
     }
 
@@ -0,0 +1,53 @@
+package net.earthcomputer.multiconnect.protocols.generic;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The translations loaded from the resource packs with the translation overlay of a version on top. Both layers are
+ * immutable and shared, so switching versions only needs a new one of these rather than a reload of the languages.
+ */
+final class LayeredTranslations extends AbstractMap<String, String> {
+    private final Map<String, String> base;
+    private final Map<String, String> overlay;
+    @Nullable
+    private Set<Entry<String, String>> entrySet;
+
+    LayeredTranslations(Map<String, String> base, Map<String, String> overlay) {
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    @Override
+    public String get(Object key) {
+        String value = overlay.get(key);
+        return value != null ? value : base.get(key);
+    }
+
+    @Override
+    public String getOrDefault(Object key, String defaultValue) {
+        String value = overlay.get(key);
+        return value != null ? value : base.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return overlay.containsKey(key) || base.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        // only needed for iteration, which the game doesn't do on the hot path
+        if (entrySet == null) {
+            Map<String, String> merged = new HashMap<>(base);
+            merged.putAll(overlay);
+            entrySet = Collections.unmodifiableMap(merged).entrySet();
+        }
+        return entrySet;
+    }
+}
@@ -2,10 +2,9 @@ package net.earthcomputer.multiconnect.protocols.generic;
 
 import com.mojang.brigadier.CommandDispatcher;
 import net.earthcomputer.multiconnect.api.ProtocolBehavior;
-import net.earthcomputer.multiconnect.mixin.bridge.MinecraftAccessor;
-import net.minecraft.client.Minecraft;
 import net.minecraft.commands.CommandBuildContext;
 import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
@@ -14,18 +13,60 @@ import java.util.*;
 
 public class ProtocolBehaviorSet {
     private static final Set<Block> collisionBoxesToRevert = new HashSet<>();
+    private final int protocolVersion;
     private final List<ProtocolBehavior> behaviors;
+    // published as a whole, so that other threads never see half baked overrides. Null until baked
+    @Nullable
+    private volatile BakedOverrides bakedOverrides;
 
-    public ProtocolBehaviorSet(List<ProtocolBehavior> behaviors) {
+    public ProtocolBehaviorSet(int protocolVersion, List<ProtocolBehavior> behaviors) {
+        this.protocolVersion = protocolVersion;
         this.behaviors = behaviors;
     }
 
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public List<ProtocolBehavior> getBehaviors() {
+        return behaviors;
+    }
+
     public void setup() {
-        revertCollisionBoxes();
-        AssetDownloader.reloadLanguages();
-        markChangedCollisionBoxes();
-        ((MinecraftAccessor) Minecraft.getInstance()).getSearchRegistry().onResourceManagerReload(Minecraft.getInstance().getResourceManager());
-        for (ProtocolBehavior behavior : behaviors) {
+        setup(null);
+    }
+
+    /**
+     * Sets up this behavior set in place of the previous one. Only the behaviors which are not shared between the two
+     * sets are disabled and set up, and only the blocks whose collision those behaviors change are recomputed. If there
+     * is no previous set, everything is set up from scratch.
+     */
+    public void setup(@Nullable ProtocolBehaviorSet previous) {
+        List<ProtocolBehavior> removed;
+        List<ProtocolBehavior> added;
+        if (previous == null) {
+            removed = Collections.emptyList();
+            added = behaviors;
+        } else {
+            Set<ProtocolBehavior> previousBehaviors = Collections.newSetFromMap(new IdentityHashMap<>());
+            previousBehaviors.addAll(previous.behaviors);
+            Set<ProtocolBehavior> newBehaviors = Collections.newSetFromMap(new IdentityHashMap<>());
+            newBehaviors.addAll(behaviors);
+            removed = previous.behaviors.stream().filter(behavior -> !newBehaviors.contains(behavior)).toList();
+            added = behaviors.stream().filter(behavior -> !previousBehaviors.contains(behavior)).toList();
+        }
+
+        for (int i = removed.size() - 1; i >= 0; i--) {
+            removed.get(i).onDisable();
+        }
+
+        updateCollisionBoxes(previous == null ? null : removed, added);
+        if (previous == null || previous.protocolVersion != protocolVersion) {
+            AssetDownloader.switchTranslationOverlay();
+        }
+        bakeBlockOverrides();
+
+        for (ProtocolBehavior behavior : added) {
             behavior.onSetup();
         }
     }
@@ -36,31 +77,95 @@ public class ProtocolBehaviorSet {
         }
     }
 
-    protected void markChangedCollisionBoxes() {
-        for (ProtocolBehavior behavior : behaviors) {
-            for (Block block : behavior.getBlocksWithChangedCollision()) {
-                markCollisionBoxChanged(block);
+    /**
+     * Recomputes the collision of blocks changed by the removed and added behaviors. A block only changed by behaviors
+     * shared with the previous set already has the right collision. If {@code removed} is null, the collision of every
+     * block changed by the previous set is reverted.
+     */
+    private void updateCollisionBoxes(@Nullable List<ProtocolBehavior> removed, List<ProtocolBehavior> added) {
+        Set<Block> blocksToUpdate = new HashSet<>();
+        if (removed == null) {
+            blocksToUpdate.addAll(collisionBoxesToRevert);
+        } else {
+            for (ProtocolBehavior behavior : removed) {
+                Collections.addAll(blocksToUpdate, behavior.getBlocksWithChangedCollision());
             }
         }
-    }
+        for (ProtocolBehavior behavior : added) {
+            Collections.addAll(blocksToUpdate, behavior.getBlocksWithChangedCollision());
+        }
 
-    private void revertCollisionBoxes() {
-        for (Block block : collisionBoxesToRevert) {
+        for (Block block : blocksToUpdate) {
             for (BlockState state : block.getStateDefinition().getPossibleStates()) {
                 state.initCache();
             }
         }
+
         collisionBoxesToRevert.clear();
+        for (ProtocolBehavior behavior : behaviors) {
+            Collections.addAll(collisionBoxesToRevert, behavior.getBlocksWithChangedCollision());
+        }
     }
 
-    private void markCollisionBoxChanged(Block block) {
-        for (BlockState state : block.getStateDefinition().getPossibleStates()) {
-            state.initCache();
+    /**
+     * Evaluates the destroy speed and explosion resistance overrides of the behaviors for every block state and block,
+     * so that looking them up doesn't need to go through the behaviors each time
+     */
+    public void bakeBlockOverrides() {
+        if (bakedOverrides != null) {
+            return;
+        }
+
+        float[] destroySpeeds = new float[Block.BLOCK_STATE_REGISTRY.size()];
+        boolean hasDestroySpeeds = false;
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            float destroySpeed = computeBlockDestroySpeed(state, state.destroySpeed);
+            destroySpeeds[Block.getId(state)] = destroySpeed == state.destroySpeed ? Float.NaN : destroySpeed;
+            hasDestroySpeeds |= destroySpeed != state.destroySpeed;
+        }
+
+        float[] explosionResistances = new float[BuiltInRegistries.BLOCK.size()];
+        boolean hasExplosionResistances = false;
+        for (Block block : BuiltInRegistries.BLOCK) {
+            float resistance = computeBlockExplosionResistance(block, block.explosionResistance);
+            explosionResistances[BuiltInRegistries.BLOCK.getId(block)] = resistance == block.explosionResistance ? Float.NaN : resistance;
+            hasExplosionResistances |= resistance != block.explosionResistance;
         }
-        collisionBoxesToRevert.add(block);
+
+        bakedOverrides = new BakedOverrides(
+            hasDestroySpeeds ? destroySpeeds : null,
+            hasExplosionResistances ? explosionResistances : null
+        );
     }
 
     public float getBlockDestroySpeed(BlockState state, float destroySpeed) {
+        BakedOverrides baked = bakedOverrides;
+        // the overrides were baked from the vanilla value, another mod may have changed it
+        if (baked == null || destroySpeed != state.destroySpeed) {
+            return computeBlockDestroySpeed(state, destroySpeed);
+        }
+        float[] overrides = baked.destroySpeeds;
+        if (overrides == null) {
+            return destroySpeed;
+        }
+        float override = overrides[Block.getId(state)];
+        return Float.isNaN(override) ? destroySpeed : override;
+    }
+
+    public float getBlockExplosionResistance(Block block, float resistance) {
+        BakedOverrides baked = bakedOverrides;
+        if (baked == null || resistance != block.explosionResistance) {
+            return computeBlockExplosionResistance(block, resistance);
+        }
+        float[] overrides = baked.explosionResistances;
+        if (overrides == null) {
+            return resistance;
+        }
+        float override = overrides[BuiltInRegistries.BLOCK.getId(block)];
+        return Float.isNaN(override) ? resistance : override;
+    }
+
+    private float computeBlockDestroySpeed(BlockState state, float destroySpeed) {
         for (ProtocolBehavior behavior : behaviors) {
             Float result = behavior.getDestroySpeed(state, destroySpeed);
             if (result != null) {
@@ -70,7 +175,7 @@ public class ProtocolBehaviorSet {
         return destroySpeed;
     }
 
-    public float getBlockExplosionResistance(Block block, float resistance) {
+    private float computeBlockExplosionResistance(Block block, float resistance) {
         for (ProtocolBehavior behavior : behaviors) {
             Float result = behavior.getExplosionResistance(block, resistance);
             if (result != null) {
@@ -92,4 +197,10 @@ public class ProtocolBehaviorSet {
             behaviors.get(i).onCommandRegistration(args);
         }
     }
+
+    /**
+     * Overrides indexed by block state id and block id, NaN for no override. Null if nothing is overridden
+     */
+    private record BakedOverrides(@Nullable float[] destroySpeeds, @Nullable float[] explosionResistances) {
+    }
 }
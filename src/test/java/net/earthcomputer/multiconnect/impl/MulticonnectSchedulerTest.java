@@ -0,0 +1,119 @@
+package net.earthcomputer.multiconnect.impl;
+
+import net.earthcomputer.multiconnect.api.ScheduledTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MulticonnectSchedulerTest {
+    @BeforeEach
+    void beforeEach() {
+        MulticonnectScheduler.reset();
+    }
+
+    @Test
+    public void testDelayedTaskRunsOnDueTick() {
+        List<String> ran = new ArrayList<>();
+        MulticonnectScheduler.scheduleDelayed(2, () -> ran.add("a"));
+        MulticonnectScheduler.tick();
+        MulticonnectScheduler.tick();
+        assertEquals(List.of(), ran);
+        MulticonnectScheduler.tick();
+        assertEquals(List.of("a"), ran);
+        MulticonnectScheduler.tick();
+        assertEquals(List.of("a"), ran);
+    }
+
+    @Test
+    public void testNoDelayRunsOnNextTick() {
+        List<String> ran = new ArrayList<>();
+        MulticonnectScheduler.scheduleDelayed(0, () -> ran.add("a"));
+        MulticonnectScheduler.tick();
+        assertEquals(List.of("a"), ran);
+    }
+
+    @Test
+    public void testSameTickRunsInSubmissionOrder() {
+        List<String> ran = new ArrayList<>();
+        MulticonnectScheduler.scheduleDelayed(3, () -> ran.add("a"));
+        MulticonnectScheduler.scheduleDelayed(1, () -> ran.add("b"));
+        MulticonnectScheduler.scheduleDelayed(3, () -> ran.add("c"));
+        MulticonnectScheduler.scheduleDelayed(3, () -> ran.add("d"));
+        MulticonnectScheduler.scheduleDelayed(3, () -> ran.add("e"));
+        for (int i = 0; i < 4; i++) {
+            MulticonnectScheduler.tick();
+        }
+        assertEquals(List.of("b", "a", "c", "d", "e"), ran);
+    }
+
+    @Test
+    public void testDelayLongerThanWheel() {
+        List<String> ran = new ArrayList<>();
+        MulticonnectScheduler.scheduleDelayed(300, () -> ran.add("a"));
+        // the task shares a wheel slot with earlier ticks, but must not run on them
+        for (int i = 0; i < 300; i++) {
+            MulticonnectScheduler.tick();
+        }
+        assertEquals(List.of(), ran);
+        MulticonnectScheduler.tick();
+        assertEquals(List.of("a"), ran);
+    }
+
+    @Test
+    public void testPeriodicTask() {
+        List<Integer> ran = new ArrayList<>();
+        int[] tick = {0};
+        ScheduledTask task = MulticonnectScheduler.schedule(3, () -> ran.add(tick[0]));
+        for (; tick[0] < 7; tick[0]++) {
+            MulticonnectScheduler.tick();
+        }
+        assertEquals(List.of(0, 3, 6), ran);
+
+        task.cancel();
+        for (int i = 0; i < 6; i++) {
+            MulticonnectScheduler.tick();
+        }
+        assertEquals(List.of(0, 3, 6), ran);
+    }
+
+    @Test
+    public void testPeriodicTaskKeepsOrderWithDelayedTasks() {
+        List<String> ran = new ArrayList<>();
+        ScheduledTask task = MulticonnectScheduler.schedule(2, () -> ran.add("periodic"));
+        MulticonnectScheduler.scheduleDelayed(2, () -> ran.add("delayed"));
+        for (int i = 0; i < 3; i++) {
+            MulticonnectScheduler.tick();
+        }
+        task.cancel();
+        // the periodic task was submitted first, so it runs first on the tick they share
+        assertEquals(List.of("periodic", "periodic", "delayed"), ran);
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() {
+        List<String> ran = new ArrayList<>();
+        MulticonnectScheduler.scheduleDelayed(1, () -> ran.add("a")).cancel();
+        ScheduledTask task = MulticonnectScheduler.scheduleDelayed(2, () -> ran.add("b"));
+        MulticonnectScheduler.tick();
+        task.cancel();
+        for (int i = 0; i < 3; i++) {
+            MulticonnectScheduler.tick();
+        }
+        assertEquals(List.of(), ran);
+    }
+
+    @Test
+    public void testExceptionDoesNotStopOtherTasks() {
+        List<String> ran = new ArrayList<>();
+        MulticonnectScheduler.scheduleDelayed(0, () -> {
+            throw new RuntimeException("expected");
+        });
+        MulticonnectScheduler.scheduleDelayed(0, () -> ran.add("a"));
+        MulticonnectScheduler.tick();
+        assertEquals(List.of("a"), ran);
+    }
+}
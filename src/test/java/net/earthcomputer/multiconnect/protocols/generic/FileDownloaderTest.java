@@ -0,0 +1,147 @@
+package net.earthcomputer.multiconnect.protocols.generic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDownloaderTest {
+    private static final byte[] CONTENT = "{\"block.minecraft.stone\": \"Stone\"}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testPartInfoRoundTrip() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path partInfoFile = tempDir.resolve("file.partinfo");
+        Files.write(partFile, new byte[100]);
+        FileDownloader.PartInfo.write(partInfoFile, "\"etag\"", "gzip");
+
+        FileDownloader.PartInfo partInfo = FileDownloader.PartInfo.read(partFile, partInfoFile);
+        assertEquals(new FileDownloader.PartInfo(100, "\"etag\"", "gzip"), partInfo);
+    }
+
+    @Test
+    public void testPartInfoMissingFiles() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path partInfoFile = tempDir.resolve("file.partinfo");
+        assertNull(FileDownloader.PartInfo.read(partFile, partInfoFile));
+
+        Files.write(partFile, new byte[100]);
+        assertNull(FileDownloader.PartInfo.read(partFile, partInfoFile));
+
+        Files.delete(partFile);
+        FileDownloader.PartInfo.write(partInfoFile, "\"etag\"", "identity");
+        assertNull(FileDownloader.PartInfo.read(partFile, partInfoFile));
+    }
+
+    @Test
+    public void testPartInfoNothingToResume() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path partInfoFile = tempDir.resolve("file.partinfo");
+        Files.write(partFile, new byte[0]);
+        FileDownloader.PartInfo.write(partInfoFile, "\"etag\"", "identity");
+        assertNull(FileDownloader.PartInfo.read(partFile, partInfoFile));
+    }
+
+    @Test
+    public void testPartInfoTruncated() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path partInfoFile = tempDir.resolve("file.partinfo");
+        Files.write(partFile, new byte[100]);
+        Files.writeString(partInfoFile, "\"etag\"");
+        assertNull(FileDownloader.PartInfo.read(partFile, partInfoFile));
+    }
+
+    @Test
+    public void testPartInfoResumedBy() {
+        FileDownloader.PartInfo partInfo = new FileDownloader.PartInfo(100, "\"etag\"", "gzip");
+        assertTrue(partInfo.isResumedBy(206, "gzip"));
+        // the content changed, the server sent the whole thing
+        assertFalse(partInfo.isResumedBy(200, "gzip"));
+        // the bytes in the part file can't be continued with a different encoding
+        assertFalse(partInfo.isResumedBy(206, "identity"));
+    }
+
+    @Test
+    public void testChecksumMatches() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path destFile = tempDir.resolve("file");
+        Files.write(partFile, CONTENT);
+        Files.setLastModifiedTime(partFile, FileTime.fromMillis(1_000_000_000_000L));
+
+        FileDownloader.writeDownloadedFile(partFile, "identity", destFile, FileDownloader.Downloader.DEFAULT, FileDownloader.Checksum.sha256(sha256(CONTENT)));
+        assertArrayEquals(CONTENT, Files.readAllBytes(destFile));
+        assertEquals(Files.getLastModifiedTime(partFile), Files.getLastModifiedTime(destFile));
+    }
+
+    @Test
+    public void testChecksumIgnoresCase() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path destFile = tempDir.resolve("file");
+        Files.write(partFile, CONTENT);
+
+        FileDownloader.writeDownloadedFile(partFile, "identity", destFile, FileDownloader.Downloader.DEFAULT, FileDownloader.Checksum.sha256(sha256(CONTENT).toUpperCase()));
+        assertArrayEquals(CONTENT, Files.readAllBytes(destFile));
+    }
+
+    @Test
+    public void testChecksumMismatch() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path destFile = tempDir.resolve("file");
+        Files.write(partFile, CONTENT);
+
+        String wrongHash = sha256("something else".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> FileDownloader.writeDownloadedFile(partFile, "identity", destFile, FileDownloader.Downloader.DEFAULT, FileDownloader.Checksum.sha256(wrongHash)));
+        assertFalse(Files.exists(destFile));
+    }
+
+    @Test
+    public void testChecksumOfDecodedContent() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path destFile = tempDir.resolve("file");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partFile))) {
+            out.write(CONTENT);
+        }
+
+        FileDownloader.writeDownloadedFile(partFile, "gzip", destFile, FileDownloader.Downloader.DEFAULT, FileDownloader.Checksum.sha256(sha256(CONTENT)));
+        assertArrayEquals(CONTENT, Files.readAllBytes(destFile));
+    }
+
+    @Test
+    public void testChecksumCoversUnreadContent() throws IOException {
+        Path partFile = tempDir.resolve("file.part");
+        Path destFile = tempDir.resolve("file");
+        Files.write(partFile, CONTENT);
+
+        // a downloader that stops reading early, like one that only extracts one entry from a zip
+        FileDownloader.Downloader downloader = (in, dest) -> Files.write(dest, in.readNBytes(4));
+        FileDownloader.writeDownloadedFile(partFile, "identity", destFile, downloader, FileDownloader.Checksum.sha256(sha256(CONTENT)));
+        assertEquals(4, Files.size(destFile));
+
+        Files.delete(destFile);
+        String truncatedHash = sha256(new String(CONTENT, StandardCharsets.UTF_8).substring(0, 4).getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> FileDownloader.writeDownloadedFile(partFile, "identity", destFile, downloader, FileDownloader.Checksum.sha256(truncatedHash)));
+        assertFalse(Files.exists(destFile));
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
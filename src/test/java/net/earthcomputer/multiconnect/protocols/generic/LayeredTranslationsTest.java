@@ -0,0 +1,80 @@
+package net.earthcomputer.multiconnect.protocols.generic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayeredTranslationsTest {
+    private static final Map<String, String> BASE = Map.of(
+        "block.minecraft.stone", "Stone",
+        "block.minecraft.grass_block", "Grass Block",
+        "chat.type.text", "<%s> %s"
+    );
+    private static final Map<String, String> OVERLAY = Map.of(
+        "block.minecraft.grass_block", "Grass",
+        "tile.stonebrick.name", "Stone Bricks"
+    );
+
+    @Test
+    public void testOverlayTakesPriority() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, OVERLAY);
+        assertEquals("Grass", translations.get("block.minecraft.grass_block"));
+        assertEquals("Grass", translations.getOrDefault("block.minecraft.grass_block", "default"));
+    }
+
+    @Test
+    public void testFallsBackToBase() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, OVERLAY);
+        assertEquals("Stone", translations.get("block.minecraft.stone"));
+        assertEquals("Stone", translations.getOrDefault("block.minecraft.stone", "default"));
+        assertEquals("Stone Bricks", translations.get("tile.stonebrick.name"));
+    }
+
+    @Test
+    public void testMissingKey() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, OVERLAY);
+        assertNull(translations.get("item.minecraft.missing"));
+        assertEquals("default", translations.getOrDefault("item.minecraft.missing", "default"));
+        assertFalse(translations.containsKey("item.minecraft.missing"));
+    }
+
+    @Test
+    public void testContainsKey() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, OVERLAY);
+        assertTrue(translations.containsKey("block.minecraft.stone"));
+        assertTrue(translations.containsKey("block.minecraft.grass_block"));
+        assertTrue(translations.containsKey("tile.stonebrick.name"));
+    }
+
+    @Test
+    public void testEntries() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, OVERLAY);
+        Map<String, String> expected = Map.of(
+            "block.minecraft.stone", "Stone",
+            "block.minecraft.grass_block", "Grass",
+            "chat.type.text", "<%s> %s",
+            "tile.stonebrick.name", "Stone Bricks"
+        );
+        assertEquals(expected, translations);
+        assertEquals(expected.size(), translations.size());
+        assertEquals(expected.hashCode(), translations.hashCode());
+    }
+
+    @Test
+    public void testEmptyOverlay() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, Collections.emptyMap());
+        assertEquals(BASE, translations);
+        assertEquals("Grass Block", translations.get("block.minecraft.grass_block"));
+    }
+
+    @Test
+    public void testUnmodifiable() {
+        LayeredTranslations translations = new LayeredTranslations(BASE, OVERLAY);
+        assertThrows(UnsupportedOperationException.class, () -> translations.put("block.minecraft.stone", "Rock"));
+        assertThrows(UnsupportedOperationException.class, () -> translations.entrySet().clear());
+        assertEquals("Stone", translations.get("block.minecraft.stone"));
+    }
+}
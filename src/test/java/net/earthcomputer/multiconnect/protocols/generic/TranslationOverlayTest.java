@@ -0,0 +1,117 @@
+package net.earthcomputer.multiconnect.protocols.generic;
+
+import net.earthcomputer.multiconnect.TestUtil;
+import net.minecraft.SharedConstants;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranslationOverlayTest {
+    private static final int MAGIC = 0x4d434f56;
+    private static final int FORMAT_VERSION = 1;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void beforeAll() {
+        TestUtil.callBootstrap();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Path file = tempDir.resolve("1.12.2").resolve("overlay_de_de.bin");
+        Map<String, String> overlay = Map.of(
+            "block.minecraft.stone", "Stein",
+            "chat.type.text", "<%s> %s",
+            "commands.message.display.incoming", "%1$s flüstert dir zu: %2$s",
+            "options.empty", "",
+            "gui.emoji", "❤😀"
+        );
+        AssetDownloader.writeTranslationOverlay(file, overlay);
+        assertEquals(overlay, AssetDownloader.readTranslationOverlay(file));
+    }
+
+    @Test
+    public void testEmptyRoundTrip() {
+        Path file = tempDir.resolve("overlay_en_us.bin");
+        AssetDownloader.writeTranslationOverlay(file, Collections.emptyMap());
+        assertEquals(Collections.emptyMap(), AssetDownloader.readTranslationOverlay(file));
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+        Path file = tempDir.resolve("overlay_en_us.bin");
+        AssetDownloader.writeTranslationOverlay(file, Map.of("a", "é"));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(expected);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(SharedConstants.getProtocolVersion());
+        out.writeInt(1);
+        out.writeInt(1);
+        out.write('a');
+        out.writeInt(2);
+        out.write("é".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertNull(AssetDownloader.readTranslationOverlay(tempDir.resolve("overlay_en_us.bin")));
+    }
+
+    @Test
+    public void testWrongMagic() throws IOException {
+        Path file = tempDir.resolve("overlay_en_us.bin");
+        Files.write(file, header(0x12345678, FORMAT_VERSION, SharedConstants.getProtocolVersion()));
+        assertNull(AssetDownloader.readTranslationOverlay(file));
+    }
+
+    @Test
+    public void testWrongFormatVersion() throws IOException {
+        Path file = tempDir.resolve("overlay_en_us.bin");
+        Files.write(file, header(MAGIC, FORMAT_VERSION + 1, SharedConstants.getProtocolVersion()));
+        assertNull(AssetDownloader.readTranslationOverlay(file));
+    }
+
+    @Test
+    public void testWrittenByOtherVersion() throws IOException {
+        // the overlay is a diff against the version which wrote it, so it's stale after an update
+        Path file = tempDir.resolve("overlay_en_us.bin");
+        Files.write(file, header(MAGIC, FORMAT_VERSION, SharedConstants.getProtocolVersion() - 1));
+        assertNull(AssetDownloader.readTranslationOverlay(file));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        Path file = tempDir.resolve("overlay_en_us.bin");
+        AssetDownloader.writeTranslationOverlay(file, Map.of("block.minecraft.stone", "Stein"));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(AssetDownloader.readTranslationOverlay(file));
+    }
+
+    private static byte[] header(int magic, int formatVersion, int protocolVersion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(magic);
+        out.writeInt(formatVersion);
+        out.writeInt(protocolVersion);
+        out.writeInt(0);
+        return bytes.toByteArray();
+    }
+}
@@ -3,6 +3,8 @@ package net.earthcomputer.multiconnect.api;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 
+import java.util.BitSet;
+
 public interface IMulticonnectTranslator {
     default int priority() {
         return 0;
@@ -15,6 +17,19 @@ public interface IMulticonnectTranslator {
     void postPipelineModifiers(Channel channel);
 
     boolean doesServerKnow(String registry, String entry);
+    /**
+     * Returns the raw ids of the entries in the given registry that the current server knows about. The result may be
+     * cached for the connection and must not be modified.
+     */
+    BitSet doesServerKnowAll(String registry);
+    /**
+     * Does whatever one-off work connecting to a server with the given protocol version would need, such as loading
+     * mapping data, so that connecting later is faster. Called on a low priority background thread, must not affect
+     * any existing connection. The work should be done on the calling thread, since its CPU time is what the prewarm
+     * budget is measured in.
+     */
+    default void prewarm(int protocolVersion) {
+    }
     void sendStringCustomPayload(Channel channel, String payloadChannel, ByteBuf payload) throws Exception;
     void sendOpenedInventory(Channel channel) throws Exception;
 }
@@ -4,6 +4,7 @@ import io.netty.channel.Channel;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
+import java.util.BitSet;
 import java.util.function.Consumer;
 
 public interface IMulticonnectTranslatorApi {
@@ -11,15 +12,31 @@ public interface IMulticonnectTranslatorApi {
     String getVersion();
     boolean isModLoaded(String modid);
     Path getConfigDir();
+    /**
+     * The memory budget in bytes for caching translated chunk packets, or 0 if the cache is disabled
+     */
+    long getTranslatedChunkCacheSize();
     @Nullable
     Channel getCurrentChannel();
+    /**
+     * Returns a set with every entry of the given registry known, for when the server knows everything. The result is
+     * shared and must not be modified.
+     */
+    BitSet getAllKnownEntries(String registry);
 
-    default void scheduleRepeating(Runnable task) {
-        scheduleRepeating(1, task);
+    /**
+     * Runs the task on the client thread after the given number of ticks, 0 meaning the next tick
+     */
+    ScheduledTask scheduleDelayed(int delay, Runnable task);
+    default ScheduledTask scheduleRepeating(Runnable task) {
+        return scheduleRepeating(1, task);
     }
-    void scheduleRepeating(int period, Runnable task);
-    default <T> void scheduleRepeatingWeak(T owner, Consumer<T> task) {
-        scheduleRepeatingWeak(1, owner, task);
+    /**
+     * Runs the task on the client thread every {@code period} ticks, starting on the next tick
+     */
+    ScheduledTask scheduleRepeating(int period, Runnable task);
+    default <T> ScheduledTask scheduleRepeatingWeak(T owner, Consumer<T> task) {
+        return scheduleRepeatingWeak(1, owner, task);
     }
-    <T> void scheduleRepeatingWeak(int period, T owner, Consumer<T> task);
+    <T> ScheduledTask scheduleRepeatingWeak(int period, T owner, Consumer<T> task);
 }
@@ -0,0 +1,122 @@
+package net.earthcomputer.multiconnect.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The file format written by the multiconnect packet recorder.
+ *
+ * <p>A file starts with a {@link #HEADER_SIZE} byte header: the magic, the format version, and the number of bytes of
+ * block data after the header that have been completely written. Anything past that length is padding or an unfinished
+ * block and must be ignored.</p>
+ *
+ * <p>Each block is {@code [int uncompressed size][int compressed size][deflated records]}, and each record is
+ * {@code [byte type][long timestamp micros][int connection id][byte connection state][int length][data]}. The
+ * connection state is the vanilla protocol id (-1 handshake, 0 play, 1 status, 2 login). The data of a
+ * {@link RecordType#CONNECT} record is the protocol version of the server as an int, all other records contain a
+ * packet including its packet id.</p>
+ */
+public final class PacketRecording {
+    public static final int MAGIC = 0x4d435052; // MCPR
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int BLOCK_HEADER_SIZE = 8;
+    public static final int RECORD_HEADER_SIZE = 18;
+    public static final String FILE_EXTENSION = ".mcpr";
+
+    private PacketRecording() {
+    }
+
+    public enum RecordType {
+        CONNECT,
+        DISCONNECT,
+        /** A clientbound packet as it came from the server */
+        CLIENTBOUND_UNTRANSLATED,
+        /** A clientbound packet after translation, as the client will read it */
+        CLIENTBOUND_TRANSLATED,
+        /** A serverbound packet as the client wrote it */
+        SERVERBOUND_UNTRANSLATED,
+        /** A serverbound packet after translation, as it was sent to the server */
+        SERVERBOUND_TRANSLATED;
+
+        private static final RecordType[] VALUES = values();
+
+        public static RecordType byId(int id) {
+            if (id < 0 || id >= VALUES.length) {
+                throw new IllegalArgumentException("Unknown record type " + id);
+            }
+            return VALUES[id];
+        }
+    }
+
+    public record Record(RecordType type, long timestampMicros, int connectionId, int connectionState, byte[] data) {
+        public int protocolVersion() {
+            if (type != RecordType.CONNECT) {
+                throw new IllegalStateException("Only connect records have a protocol version");
+            }
+            return ByteBuffer.wrap(data).getInt();
+        }
+    }
+
+    /**
+     * Reads all complete records from the given file, in the order they were recorded
+     */
+    public static void read(Path file, Consumer<Record> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a packet recording: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported packet recording version " + version + ": " + file);
+            }
+            long dataLength = buffer.getLong();
+            if (dataLength < 0 || dataLength > buffer.remaining()) {
+                throw new IOException("Packet recording is truncated: " + file);
+            }
+            buffer.limit(HEADER_SIZE + (int) dataLength);
+
+            Inflater inflater = new Inflater();
+            try {
+                while (buffer.hasRemaining()) {
+                    int uncompressedSize = buffer.getInt();
+                    int compressedSize = buffer.getInt();
+                    ByteBuffer compressed = buffer.slice(buffer.position(), compressedSize);
+                    buffer.position(buffer.position() + compressedSize);
+
+                    ByteBuffer block = ByteBuffer.allocate(uncompressedSize);
+                    inflater.reset();
+                    inflater.setInput(compressed);
+                    while (block.hasRemaining() && !inflater.finished()) {
+                        if (inflater.inflate(block) == 0 && inflater.needsInput()) {
+                            throw new IOException("Corrupt block in packet recording: " + file);
+                        }
+                    }
+                    block.flip();
+
+                    while (block.hasRemaining()) {
+                        RecordType type = RecordType.byId(block.get());
+                        long timestamp = block.getLong();
+                        int connectionId = block.getInt();
+                        int state = block.get();
+                        byte[] data = new byte[block.getInt()];
+                        block.get(data);
+                        consumer.accept(new Record(type, timestamp, connectionId, state, data));
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt block in packet recording: " + file, e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+}
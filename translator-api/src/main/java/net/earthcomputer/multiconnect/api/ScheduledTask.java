@@ -0,0 +1,23 @@
+package net.earthcomputer.multiconnect.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A handle to a task scheduled on the client tick. Handles may be used from any thread.
+ */
+public interface ScheduledTask {
+    /**
+     * Stops the task from running again. Has no effect if the task has already run or been cancelled.
+     */
+    void cancel();
+
+    boolean isCancelled();
+
+    /**
+     * Sets how long a single run of this task is expected to take. Runs which take longer are logged. Tasks which
+     * don't set a budget use the default of {@code -Dmulticonnect.slowTaskThresholdMs}.
+     */
+    default ScheduledTask setTimeBudget(long budget, TimeUnit unit) {
+        return this;
+    }
+}
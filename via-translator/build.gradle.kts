@@ -39,6 +39,7 @@ dependencies {
     implementation("org.yaml:snakeyaml:${rootProject.property("snakeyaml_version")}")
     include("org.yaml:snakeyaml:${rootProject.property("snakeyaml_version")}")
     compileOnly("com.google.code.findbugs:jsr305:3.0.2")
+    testImplementation("org.junit.jupiter:junit-jupiter:5.9.2")
 }
 
 modrinth {
@@ -57,6 +58,20 @@ tasks {
         from("LICENSE.md")
     }
 
+    test {
+        useJUnitPlatform()
+    }
+
+    register<JavaExec>("replayPackets") {
+        group = "multiconnect"
+        description = "Replays packet recordings through the translator, pass them with -Precordings=<file>[,<file>...]"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("net.earthcomputer.multiconnect.impl.via.PacketReplay")
+        workingDir = rootProject.file("run")
+        project.findProperty("replayArgs")?.let { args(it.toString().split(' ').filter(String::isNotBlank)) }
+        project.findProperty("recordings")?.let { args(it.toString().split(',')) }
+    }
+
     processResources {
         duplicatesStrategy = DuplicatesStrategy.WARN
 
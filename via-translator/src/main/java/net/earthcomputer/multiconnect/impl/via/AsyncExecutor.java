@@ -0,0 +1,108 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for Via's async tasks, which are mostly blocking I/O in bursts around startup and connecting. Uses a
+ * virtual thread per task when {@code -Dmulticonnect.virtualThreads=true} and the runtime supports them, otherwise an
+ * elastic pool which grows up to {@code multiconnect.asyncThreads} threads and shrinks back to zero when idle.
+ */
+final class AsyncExecutor implements Executor {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    static final AsyncExecutor INSTANCE = new AsyncExecutor();
+
+    private final ExecutorService delegate;
+    private final boolean virtualThreads;
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+
+    private AsyncExecutor() {
+        ExecutorService virtualExecutor = Boolean.getBoolean("multiconnect.virtualThreads") ? createVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            delegate = virtualExecutor;
+            virtualThreads = true;
+        } else {
+            // Blocking downloads shouldn't starve each other, so allow more threads than cores. Core threads are allowed
+            // to time out, so the pool costs nothing while no server is connected.
+            int maxThreads = Integer.getInteger("multiconnect.asyncThreads", Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                maxThreads, maxThreads,
+                Integer.getInteger("multiconnect.asyncThreadKeepAliveSeconds", 30), TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect async executor #%d").build()
+            );
+            pool.allowCoreThreadTimeOut(true);
+            delegate = pool;
+            virtualThreads = false;
+        }
+    }
+
+    @Nullable
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                .invoke();
+        } catch (Throwable e) {
+            LOGGER.warn("Virtual threads are not available on this Java version, falling back to a thread pool");
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        queuedTasks.incrementAndGet();
+        delegate.execute(() -> {
+            queuedTasks.decrementAndGet();
+            activeTasks.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                activeTasks.decrementAndGet();
+                completedTasks.incrementAndGet();
+            }
+        });
+    }
+
+    boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    int getActiveTasks() {
+        return activeTasks.get();
+    }
+
+    int getQueuedTasks() {
+        return queuedTasks.get();
+    }
+
+    long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    /**
+     * The number of platform threads currently alive in the pool, always 0 when using virtual threads.
+     */
+    int getPoolSize() {
+        return delegate instanceof ThreadPoolExecutor pool ? pool.getPoolSize() : 0;
+    }
+
+    int getLargestPoolSize() {
+        return delegate instanceof ThreadPoolExecutor pool ? pool.getLargestPoolSize() : 0;
+    }
+}
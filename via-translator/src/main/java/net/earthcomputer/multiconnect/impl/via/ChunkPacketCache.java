@@ -0,0 +1,190 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.data.entity.EntityTracker;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import com.viaversion.viaversion.api.protocol.packet.ClientboundPacketType;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import com.viaversion.viaversion.protocols.protocol1_18to1_17_1.ClientboundPackets1_18;
+import com.viaversion.viaversion.protocols.protocol1_19_1to1_19.ClientboundPackets1_19_1;
+import com.viaversion.viaversion.protocols.protocol1_19_1to1_19.Protocol1_19_1To1_19;
+import com.viaversion.viaversion.protocols.protocol1_19_3to1_19_1.ClientboundPackets1_19_3;
+import com.viaversion.viaversion.protocols.protocol1_19_3to1_19_1.Protocol1_19_3To1_19_1;
+import com.viaversion.viaversion.protocols.protocol1_19to1_18_2.ClientboundPackets1_19;
+import com.viaversion.viaversion.protocols.protocol1_19to1_18_2.Protocol1_19To1_18_2;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LRU cache of translated chunk packets, keyed by a hash of the untranslated packet, the protocol pipeline and the world
+ * the connection is in, shared between connections. The memory budget comes from {@code translatedChunkCacheSizeMb} in
+ * the multiconnect config and the cache is disabled by default.
+ *
+ * <p>A cache hit skips the Via chunk rewriters entirely, so only pipelines whose chunk rewriters neither keep per-chunk
+ * state (client chunk tracking, block connections, light storage) nor depend on any state other than the world height
+ * are cached. In practice that is servers on 1.18.2 and above.</p>
+ */
+final class ChunkPacketCache {
+    // smaller packets are cheap enough to translate that hashing them isn't worth it
+    private static final int MIN_PACKET_SIZE = 1024;
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final NavigableMap<Integer, int[]> CHUNK_PACKET_IDS = new TreeMap<>();
+    static {
+        // older pipelines aren't cacheable, see STATELESS_CHUNK_PROTOCOLS
+        addChunkPackets(ProtocolVersion.v1_18, ClientboundPackets1_18.CHUNK_DATA);
+        addChunkPackets(ProtocolVersion.v1_19, ClientboundPackets1_19.CHUNK_DATA);
+        addChunkPackets(ProtocolVersion.v1_19_1, ClientboundPackets1_19_1.CHUNK_DATA);
+        addChunkPackets(ProtocolVersion.v1_19_3, ClientboundPackets1_19_3.CHUNK_DATA);
+    }
+
+    // protocols whose chunk rewriting only depends on the packet and the world height, and has no side effects
+    private static final Set<Class<?>> STATELESS_CHUNK_PROTOCOLS = Set.of(
+        Protocol1_19To1_18_2.class,
+        Protocol1_19_1To1_19.class,
+        Protocol1_19_3To1_19_1.class
+    );
+
+    private static final Map<List<Protocol>, PipelineInfo> pipelines = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextPipelineId = new AtomicInteger();
+
+    private static volatile long maxSize;
+    private static long size;
+    private static final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private ChunkPacketCache() {
+    }
+
+    private static void addChunkPackets(ProtocolVersion version, ClientboundPacketType... packetTypes) {
+        CHUNK_PACKET_IDS.put(version.getVersion(), Arrays.stream(packetTypes).mapToInt(ClientboundPacketType::getId).toArray());
+    }
+
+    static synchronized void setMaxSize(long maxSize) {
+        ChunkPacketCache.maxSize = maxSize;
+        evict();
+    }
+
+    static synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the cache key for the given untranslated packet, or {@code null} if the packet shouldn't be cached
+     */
+    @Nullable
+    static Key createKey(UserConnection info, ByteBuf packet) {
+        if (maxSize <= 0 || packet.readableBytes() < MIN_PACKET_SIZE || info.getProtocolInfo().getState() != State.PLAY) {
+            return null;
+        }
+
+        var chunkPacketIds = CHUNK_PACKET_IDS.floorEntry(info.getProtocolInfo().getServerProtocolVersion());
+        if (chunkPacketIds == null) {
+            return null;
+        }
+        int packetId = PassthroughPackets.peekVarInt(packet);
+        boolean isChunkPacket = false;
+        for (int chunkPacketId : chunkPacketIds.getValue()) {
+            if (packetId == chunkPacketId) {
+                isChunkPacket = true;
+                break;
+            }
+        }
+        if (!isChunkPacket) {
+            return null;
+        }
+
+        List<Protocol> pipes = info.getProtocolInfo().getPipeline().pipes();
+        PipelineInfo pipeline = pipelines.get(pipes);
+        if (pipeline == null) {
+            pipeline = pipelines.computeIfAbsent(List.copyOf(pipes), k -> new PipelineInfo(nextPipelineId.getAndIncrement(), isCacheable(k)));
+        }
+        if (!pipeline.cacheable) {
+            return null;
+        }
+
+        // the chunk format depends on the height of the world, which the rewriters read from the entity tracker
+        String world = null;
+        int minY = 0;
+        int sectionHeight = 0;
+        for (Protocol protocol : pipes) {
+            EntityTracker tracker = info.getEntityTracker(protocol.getClass());
+            if (tracker != null) {
+                world = tracker.currentWorld();
+                minY = tracker.currentMinY();
+                sectionHeight = tracker.currentWorldSectionHeight();
+                break;
+            }
+        }
+
+        HashCode hash = HASH_FUNCTION.hashBytes(packet.nioBuffer());
+        return new Key(pipeline.id, world, minY, sectionHeight, packet.readableBytes(), hash);
+    }
+
+    private static boolean isCacheable(List<Protocol> pipes) {
+        for (Protocol protocol : pipes) {
+            if (!protocol.isBaseProtocol() && !STATELESS_CHUNK_PROTOCOLS.contains(protocol.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    static synchronized byte[] get(Key key) {
+        byte[] result = entries.get(key);
+        if (result == null) {
+            TranslationStats.onChunkCacheMiss();
+        } else {
+            TranslationStats.onChunkCacheHit();
+        }
+        return result;
+    }
+
+    static void put(Key key, ByteBuf translatedPacket) {
+        byte[] bytes = ByteBufUtil.getBytes(translatedPacket);
+        synchronized (ChunkPacketCache.class) {
+            // don't let a single huge packet flush the whole cache
+            if (bytes.length + ENTRY_OVERHEAD > maxSize / 8) {
+                return;
+            }
+            byte[] oldValue = entries.put(key, bytes);
+            if (oldValue != null) {
+                size -= oldValue.length + ENTRY_OVERHEAD;
+            }
+            size += bytes.length + ENTRY_OVERHEAD;
+            evict();
+        }
+    }
+
+    private static void evict() {
+        Iterator<byte[]> itr = entries.values().iterator();
+        while (size > maxSize && itr.hasNext()) {
+            size -= itr.next().length + ENTRY_OVERHEAD;
+            itr.remove();
+            TranslationStats.onChunkCacheEviction();
+        }
+    }
+
+    private record PipelineInfo(int id, boolean cacheable) {
+    }
+
+    record Key(int pipelineId, @Nullable String world, int minY, int sectionHeight, int length, HashCode hash) {
+    }
+}
@@ -0,0 +1,159 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.google.common.util.concurrent.Futures;
+import com.mojang.logging.LogUtils;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.data.FullMappings;
+import com.viaversion.viaversion.api.data.MappingData;
+import com.viaversion.viaversion.api.data.Mappings;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dense new id to old id tables for the registry mappings of a Via protocol. The tables only depend on the protocol, so
+ * they are built once per protocol class and shared read-only between connections. Each table is built either on the
+ * common pool or by the first thread that needs it, whichever gets to it first.
+ */
+public final class InverseMappings {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Map<Class<?>, InverseMappings> CACHE = new ConcurrentHashMap<>();
+    private static final MappingType[] MAPPING_TYPES = MappingType.values();
+
+    private final FutureTask<int[]>[] tables;
+
+    @SuppressWarnings("unchecked")
+    private InverseMappings(MappingData mappingData) {
+        tables = new FutureTask[MAPPING_TYPES.length];
+        for (MappingType type : MAPPING_TYPES) {
+            Mappings mappings = type.getMappings(mappingData);
+            if (mappings != null) {
+                tables[type.ordinal()] = new FutureTask<>(() -> invert(mappings));
+            }
+        }
+    }
+
+    /**
+     * Starts building the tables for all protocols in the pipeline that don't have them yet on the common pool
+     */
+    static void prepare(List<Protocol> pipes) {
+        for (Protocol<?, ?, ?, ?> protocol : pipes) {
+            InverseMappings inverseMappings = get(protocol);
+            if (inverseMappings != null) {
+                for (FutureTask<int[]> table : inverseMappings.tables) {
+                    if (table != null && !table.isDone()) {
+                        ForkJoinPool.commonPool().execute(table);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns null if the protocol has no mapping data, or it failed to load
+     */
+    @Nullable
+    static InverseMappings get(Protocol<?, ?, ?, ?> protocol) {
+        MappingData mappingData = protocol.getMappingData();
+        if (mappingData == null) {
+            return null;
+        }
+        InverseMappings result = CACHE.get(protocol.getClass());
+        if (result == null) {
+            // the mapping data is empty until Via has loaded it, and tables built from it then would stay empty
+            try {
+                Via.getManager().getProtocolManager().completeMappingDataLoading(protocol.getClass());
+            } catch (Exception e) {
+                LOGGER.warn("Failed to load mapping data for {}", protocol.getClass().getSimpleName(), e);
+                return null;
+            }
+            result = CACHE.computeIfAbsent(protocol.getClass(), k -> new InverseMappings(mappingData));
+        }
+        return result;
+    }
+
+    /**
+     * Builds the tables no other thread has started on yet on this thread, and waits for the rest
+     */
+    void join() {
+        for (FutureTask<int[]> table : tables) {
+            if (table != null) {
+                getTable(table);
+            }
+        }
+    }
+
+    int getOldId(MappingType type, int newId) {
+        FutureTask<int[]> table = tables[type.ordinal()];
+        if (table == null) {
+            return newId;
+        }
+        int[] oldIds = getTable(table);
+        // ids without an old id map to 0, which is what the old hash map based lookup returned
+        return newId >= 0 && newId < oldIds.length ? oldIds[newId] : 0;
+    }
+
+    private static int[] getTable(FutureTask<int[]> table) {
+        // does nothing if the table is already being built or has been built
+        table.run();
+        return Futures.getUnchecked(table);
+    }
+
+    public static int[] invert(Mappings mappings) {
+        int[] result = new int[mappings.mappedSize()];
+        for (int oldId = 0; oldId < mappings.size(); oldId++) {
+            int newId = mappings.getNewId(oldId);
+            if (newId >= 0 && newId < result.length) {
+                result[newId] = oldId;
+            }
+        }
+        return result;
+    }
+
+    public enum MappingType {
+        BLOCK("minecraft:block", MappingData::getBlockMappings),
+        ENTITY("minecraft:entity_type", data -> unwrap(data.getEntityMappings())),
+        ENCHANTMENT("minecraft:enchantment", MappingData::getEnchantmentMappings),
+        ARGUMENT_TYPE("minecraft:command_argument_type", data -> unwrap(data.getArgumentTypeMappings())),
+        BLOCK_ENTITY("minecraft:block_entity_type", MappingData::getBlockEntityMappings),
+        PAINTING("minecraft:painting_variant", MappingData::getPaintingMappings),
+        PARTICLE("minecraft:particle_type", data -> unwrap(data.getParticleMappings())),
+        SOUND("minecraft:sound_event", MappingData::getSoundMappings),
+        STATISTICS("minecraft:custom_stat", MappingData::getStatisticsMappings);
+
+        private static final Map<String, MappingType> BY_REGISTRY = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(type -> type.registry, Function.identity()));
+
+        private final String registry;
+        private final Function<MappingData, Mappings> getter;
+
+        MappingType(String registry, Function<MappingData, Mappings> getter) {
+            this.registry = registry;
+            this.getter = getter;
+        }
+
+        @Nullable
+        public static MappingType byRegistry(String registry) {
+            return BY_REGISTRY.get(registry);
+        }
+
+        @Nullable
+        public Mappings getMappings(MappingData mappingData) {
+            return getter.apply(mappingData);
+        }
+
+        @Nullable
+        private static Mappings unwrap(@Nullable FullMappings mappings) {
+            return mappings == null ? null : mappings.mappings();
+        }
+    }
+}
@@ -2,24 +2,33 @@ package net.earthcomputer.multiconnect.impl.via;
 
 import com.viaversion.viaversion.api.Via;
 import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
 import com.viaversion.viaversion.api.protocol.packet.State;
 import com.viaversion.viaversion.exception.CancelCodecException;
 import com.viaversion.viaversion.exception.CancelEncoderException;
 import com.viaversion.viaversion.exception.InformativeException;
 import com.viaversion.viaversion.util.PipelineUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
 @ChannelHandler.Sharable
 public class MulticonnectClientboundTranslator extends MessageToMessageDecoder<ByteBuf> {
     private final UserConnection info;
+    private final PassthroughPackets passthroughPackets;
+    private final TranslationQueue queue;
 
-    public MulticonnectClientboundTranslator(UserConnection info) {
+    public MulticonnectClientboundTranslator(UserConnection info, TranslationQueue queue) {
         this.info = info;
+        this.passthroughPackets = new PassthroughPackets(info, Direction.CLIENTBOUND);
+        this.queue = queue;
     }
 
     @Override
@@ -27,20 +36,92 @@ public class MulticonnectClientboundTranslator extends MessageToMessageDecoder<B
         if (!info.checkIncomingPacket()) {
             throw CancelEncoderException.generate(null);
         }
-        if (!info.shouldTransformPacket()) {
-            out.add(in.retain());
+
+        // once a packet has gone to the workers, everything after it has to queue up behind it to keep the order, and so
+        // that Via's storages aren't used by two threads at once
+        if (queue.isBusy() || (TranslationWorkers.shouldOffload(in) && info.shouldTransformPacket())) {
+            offload(ctx.channel(), in);
             return;
         }
 
-        ByteBuf transformedBuf = ctx.alloc().buffer().writeBytes(in);
+        out.add(translate(ctx.alloc(), in));
+    }
+
+    private ByteBuf translate(ByteBufAllocator alloc, ByteBuf in) throws Exception {
+        if (!info.shouldTransformPacket()) {
+            return in.retain();
+        }
+        if (passthroughPackets.isPassthrough(in)) {
+            TranslationStats.onPassthrough();
+            return in.retain();
+        }
+
+        // the key has to be computed before the packet is transformed in place
+        ChunkPacketCache.Key cacheKey = ChunkPacketCache.createKey(info, in);
+        if (cacheKey != null) {
+            byte[] cached = ChunkPacketCache.get(cacheKey);
+            if (cached != null) {
+                return alloc.buffer(cached.length).writeBytes(cached);
+            }
+        }
+
+        ByteBuf result = transform(alloc, in);
+        if (cacheKey != null) {
+            ChunkPacketCache.put(cacheKey, result);
+        }
+        return result;
+    }
+
+    private ByteBuf transform(ByteBufAllocator alloc, ByteBuf in) throws Exception {
+        if (TranslationStats.canTransformInPlace(in)) {
+            TranslationStats.onInPlace(in.readableBytes());
+            info.transformIncoming(in, CancelEncoderException::generate);
+            return in.retain();
+        }
+
+        TranslationStats.onCopied(in.readableBytes());
+        ByteBuf transformedBuf = alloc.buffer(in.readableBytes()).writeBytes(in);
         try {
             info.transformIncoming(transformedBuf, CancelEncoderException::generate);
-            out.add(transformedBuf.retain());
+            return transformedBuf.retain();
         } finally {
             transformedBuf.release();
         }
     }
 
+    private void offload(Channel channel, ByteBuf in) {
+        ByteBuf retained = in.retain();
+        queue.submit(channel, () -> {
+            try {
+                return translate(channel.alloc(), retained);
+            } finally {
+                retained.release();
+            }
+        }, (result, error) -> onTranslated(channel, result, error));
+    }
+
+    private void onTranslated(Channel channel, @Nullable ByteBuf result, @Nullable Throwable error) {
+        // look up the context again, the handler may have been moved since the packet was queued
+        ChannelHandlerContext ctx = channel.pipeline().context(this);
+        if (ctx == null || !channel.isActive()) {
+            if (result != null) {
+                result.release();
+            }
+            return;
+        }
+
+        if (error != null) {
+            try {
+                exceptionCaught(ctx, error instanceof DecoderException ? error : new DecoderException(error));
+            } catch (Exception e) {
+                ctx.fireExceptionCaught(e);
+            }
+            return;
+        }
+
+        ctx.fireChannelRead(result);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         if (PipelineUtil.containsCause(cause, CancelCodecException.class)) {
@@ -1,6 +1,5 @@
 package net.earthcomputer.multiconnect.impl.via;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.mojang.logging.LogUtils;
@@ -13,12 +12,11 @@ import com.viaversion.viaversion.api.configuration.ViaVersionConfig;
 import com.viaversion.viaversion.api.platform.PlatformTask;
 import com.viaversion.viaversion.api.platform.ViaPlatform;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
+import net.earthcomputer.multiconnect.api.ScheduledTask;
 import net.earthcomputer.multiconnect.impl.via.provider.MulticonnectViaConfig;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
 import net.fabricmc.loader.api.metadata.Person;
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.server.IntegratedServer;
 import net.minecraft.util.GsonHelper;
 import org.slf4j.Logger;
 
@@ -31,7 +29,8 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
@@ -162,20 +161,6 @@ public class MulticonnectPlatform implements ViaPlatform<UUID> {
         return PluginVersionHolder.pluginVersion;
     }
 
-    private static final ExecutorService ASYNC_EXECUTOR = Executors.newFixedThreadPool(
-        Math.max(2, Runtime.getRuntime().availableProcessors()),
-        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect async executor #%d").build()
-    );
-
-    private static final Executor SYNC_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect sync executor").build());
-
-    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect scheduler").build());
-
-    private static Executor syncExecutor() {
-        IntegratedServer server = Minecraft.getInstance().getSingleplayerServer();
-        return server != null ? server : SYNC_EXECUTOR;
-    }
-
     private static <T> PlatformTask<Future<T>> wrapFuture(Future<T> future) {
         return new PlatformTask<>() {
             @Override
@@ -192,22 +177,38 @@ public class MulticonnectPlatform implements ViaPlatform<UUID> {
 
     @Override
     public PlatformTask<?> runAsync(Runnable runnable) {
-        return wrapFuture(CompletableFuture.runAsync(runnable, ASYNC_EXECUTOR));
+        return wrapFuture(CompletableFuture.runAsync(runnable, AsyncExecutor.INSTANCE));
+    }
+
+    private static PlatformTask<ScheduledTask> wrapTask(ScheduledTask task) {
+        return new PlatformTask<>() {
+            @Override
+            public ScheduledTask getObject() {
+                return task;
+            }
+
+            @Override
+            public void cancel() {
+                task.cancel();
+            }
+        };
     }
 
+    // sync tasks run on the client tick, in order with the game loop
+
     @Override
     public PlatformTask<?> runSync(Runnable runnable) {
-        return wrapFuture(CompletableFuture.runAsync(runnable, syncExecutor()));
+        return wrapTask(api.scheduleDelayed(0, runnable));
     }
 
     @Override
     public PlatformTask<?> runSync(Runnable runnable, long ticks) {
-        return wrapFuture(SCHEDULER.schedule(() -> runSync(runnable), ticks * 50, TimeUnit.MILLISECONDS));
+        return wrapTask(api.scheduleDelayed((int) Math.min(ticks, Integer.MAX_VALUE), runnable));
     }
 
     @Override
     public PlatformTask<?> runRepeatingSync(Runnable runnable, long ticks) {
-        return wrapFuture(SCHEDULER.scheduleAtFixedRate(() -> runSync(runnable), 0, ticks * 50, TimeUnit.MILLISECONDS));
+        return wrapTask(api.scheduleRepeating((int) Math.min(ticks, Integer.MAX_VALUE), runnable));
     }
 
     @Override
@@ -279,6 +280,14 @@ public class MulticonnectPlatform implements ViaPlatform<UUID> {
             mods.add(modJson);
         }
         dump.add("mods", mods);
+        var asyncExecutor = new com.viaversion.viaversion.libs.gson.JsonObject();
+        asyncExecutor.addProperty("virtualThreads", AsyncExecutor.INSTANCE.usesVirtualThreads());
+        asyncExecutor.addProperty("activeTasks", AsyncExecutor.INSTANCE.getActiveTasks());
+        asyncExecutor.addProperty("queuedTasks", AsyncExecutor.INSTANCE.getQueuedTasks());
+        asyncExecutor.addProperty("completedTasks", AsyncExecutor.INSTANCE.getCompletedTasks());
+        asyncExecutor.addProperty("poolSize", AsyncExecutor.INSTANCE.getPoolSize());
+        asyncExecutor.addProperty("largestPoolSize", AsyncExecutor.INSTANCE.getLargestPoolSize());
+        dump.add("asyncExecutor", asyncExecutor);
         return dump;
     }
 
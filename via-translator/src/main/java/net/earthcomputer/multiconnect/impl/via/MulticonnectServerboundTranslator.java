@@ -1,22 +1,87 @@
 package net.earthcomputer.multiconnect.impl.via;
 
 import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
 import com.viaversion.viaversion.exception.CancelCodecException;
 import com.viaversion.viaversion.exception.CancelEncoderException;
 import com.viaversion.viaversion.util.PipelineUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToMessageEncoder;
 
+import java.nio.channels.ClosedChannelException;
 import java.util.List;
 
 @ChannelHandler.Sharable
 public class MulticonnectServerboundTranslator extends MessageToMessageEncoder<ByteBuf> {
     private final UserConnection info;
+    private final PassthroughPackets passthroughPackets;
+    private final TranslationQueue queue;
+    // only accessed on the event loop
+    private int queuedWrites;
+    private boolean flushPending;
 
-    public MulticonnectServerboundTranslator(UserConnection info) {
+    public MulticonnectServerboundTranslator(UserConnection info, TranslationQueue queue) {
         this.info = info;
+        this.passthroughPackets = new PassthroughPackets(info, Direction.SERVERBOUND);
+        this.queue = queue;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        // while clientbound packets are queued on the workers, translating here could use Via's storages at the same
+        // time as them, so queue up behind them instead
+        if (!queue.isBusy() || !(msg instanceof ByteBuf in)) {
+            super.write(ctx, msg, promise);
+            return;
+        }
+
+        if (!info.checkOutgoingPacket()) {
+            in.release();
+            promise.setFailure(CancelEncoderException.generate(null));
+            return;
+        }
+
+        Channel channel = ctx.channel();
+        queuedWrites++;
+        queue.submit(channel, () -> {
+            try {
+                return translate(channel.alloc(), in);
+            } finally {
+                in.release();
+            }
+        }, (result, error) -> {
+            // look up the context again, the handler may have been moved since the packet was queued
+            ChannelHandlerContext currentCtx = channel.pipeline().context(this);
+            if (error != null || currentCtx == null) {
+                if (result != null) {
+                    result.release();
+                }
+                promise.setFailure(error != null ? error : new ClosedChannelException());
+            } else {
+                currentCtx.write(result, promise);
+            }
+
+            // a flush requested while packets were queued is passed on once the last of them is written
+            if (--queuedWrites == 0 && flushPending) {
+                flushPending = false;
+                if (currentCtx != null) {
+                    currentCtx.flush();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (queuedWrites > 0) {
+            flushPending = true;
+        }
+        super.flush(ctx);
     }
 
     @Override
@@ -24,15 +89,29 @@ public class MulticonnectServerboundTranslator extends MessageToMessageEncoder<B
         if (!info.checkOutgoingPacket()) {
             throw CancelEncoderException.generate(null);
         }
+        out.add(translate(ctx.alloc(), in));
+    }
+
+    private ByteBuf translate(ByteBufAllocator alloc, ByteBuf in) throws Exception {
         if (!info.shouldTransformPacket()) {
-            out.add(in.retain());
-            return;
+            return in.retain();
+        }
+        if (passthroughPackets.isPassthrough(in)) {
+            TranslationStats.onPassthrough();
+            return in.retain();
+        }
+
+        if (TranslationStats.canTransformInPlace(in)) {
+            TranslationStats.onInPlace(in.readableBytes());
+            info.transformOutgoing(in, CancelEncoderException::generate);
+            return in.retain();
         }
 
-        ByteBuf transformedBuf = ctx.alloc().buffer().writeBytes(in);
+        TranslationStats.onCopied(in.readableBytes());
+        ByteBuf transformedBuf = alloc.buffer(in.readableBytes()).writeBytes(in);
         try {
             info.transformOutgoing(transformedBuf, CancelEncoderException::generate);
-            out.add(transformedBuf.retain());
+            return transformedBuf.retain();
         } finally {
             transformedBuf.release();
         }
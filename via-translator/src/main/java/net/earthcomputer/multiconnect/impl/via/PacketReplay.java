@@ -0,0 +1,366 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.mojang.logging.LogUtils;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.type.Type;
+import com.viaversion.viaversion.connection.UserConnectionImpl;
+import com.viaversion.viaversion.protocol.ProtocolPipelineImpl;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.earthcomputer.multiconnect.api.PacketRecording;
+import net.minecraft.SharedConstants;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Replays packet recordings through the translator handlers on an {@link EmbeddedChannel}, as fast as possible, and
+ * reports the throughput, the time spent per packet type and the allocation rate. The translated packets in the
+ * recording are compared against the output of the replay, so this also catches translation regressions.
+ *
+ * <p>Run with {@code gradlew :via-translator:replayPackets -Precordings=<file>[,<file>...]}, optionally with
+ * {@code -PreplayArgs="--warmup 2 --iterations 5"}.</p>
+ */
+public final class PacketReplay {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int SLOWEST_PACKET_TYPES = 20;
+
+    private static ReplayTranslatorApi api;
+    private static ViaMulticonnectTranslator translator;
+
+    private PacketReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int warmup = 1;
+        int iterations = 1;
+        Path configDir = Path.of("config", "multiconnect");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--config-dir" -> configDir = Path.of(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: PacketReplay [--warmup <n>] [--iterations <n>] [--config-dir <dir>] <recording>...");
+            System.exit(1);
+        }
+
+        bootstrap(configDir);
+        if (TranslationWorkers.ENABLED) {
+            LOGGER.warn("Async translation is enabled, packets translated on the workers won't be measured correctly");
+        }
+
+        for (Path file : files) {
+            List<PacketRecording.Record> records = load(file);
+            LOGGER.info("Replaying {} ({} records)", file, records.size());
+            for (int i = 0; i < warmup; i++) {
+                replay(records);
+            }
+            for (int i = 0; i < iterations; i++) {
+                replay(records).log();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Initializes Via without the game. Must be called once before {@link #replay}.
+     */
+    public static synchronized void bootstrap(Path configDir) {
+        if (api != null) {
+            return;
+        }
+        SharedConstants.tryDetectVersion();
+        api = new ReplayTranslatorApi(configDir);
+        translator = new ViaMulticonnectTranslator();
+        translator.init(api);
+
+        // Via finishes loading in a sync task, wait for that to have run
+        CompletableFuture<Void> loaded = new CompletableFuture<>();
+        Via.getPlatform().runSync(() -> loaded.complete(null));
+        loaded.join();
+    }
+
+    public static ViaMulticonnectTranslator getTranslator() {
+        checkBootstrapped();
+        return translator;
+    }
+
+    /**
+     * Sets the channel returned by {@link ReplayTranslatorApi#getCurrentChannel()}, for the translator methods that
+     * act on the current connection
+     */
+    public static void setCurrentChannel(@Nullable Channel channel) {
+        checkBootstrapped();
+        api.currentChannel = channel;
+    }
+
+    /**
+     * Creates a channel with the translators installed, in the play state of a connection to a server on the given
+     * protocol version. Clientbound packets are written with {@link EmbeddedChannel#writeInbound}, serverbound
+     * packets with {@link EmbeddedChannel#writeOutbound}.
+     */
+    public static EmbeddedChannel createPlayChannel(int protocolVersion) throws Exception {
+        checkBootstrapped();
+        EmbeddedChannel channel = createChannel();
+        UserConnection info = ViaMulticonnectTranslator.getUserConnection(channel);
+        assert info != null;
+
+        api.protocolVersion = protocolVersion;
+        ByteBuf handshake = channel.alloc().buffer();
+        Type.VAR_INT.writePrimitive(handshake, 0); // intention packet
+        Type.VAR_INT.writePrimitive(handshake, SharedConstants.getCurrentVersion().getProtocolVersion());
+        Type.STRING.write(handshake, "localhost");
+        handshake.writeShort(25565);
+        Type.VAR_INT.writePrimitive(handshake, 2); // login
+        channel.writeOutbound(handshake);
+        channel.releaseOutbound();
+
+        info.getProtocolInfo().setState(State.PLAY);
+        return channel;
+    }
+
+    private static EmbeddedChannel createChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UserConnection info = new UserConnectionImpl(channel, true);
+        new ProtocolPipelineImpl(info);
+        TranslationQueue queue = new TranslationQueue();
+        ViaMulticonnectTranslator.setUserConnection(channel, info);
+        channel.pipeline()
+            .addLast("multiconnect_serverbound_translator", new MulticonnectServerboundTranslator(info, queue))
+            .addLast("multiconnect_clientbound_translator", new MulticonnectClientboundTranslator(info, queue));
+        return channel;
+    }
+
+    private static void checkBootstrapped() {
+        if (api == null) {
+            throw new IllegalStateException("PacketReplay.bootstrap has not been called");
+        }
+    }
+
+    public static List<PacketRecording.Record> load(Path file) throws IOException {
+        List<PacketRecording.Record> records = new ArrayList<>();
+        PacketRecording.read(file, records::add);
+        return records;
+    }
+
+    public static Report replay(List<PacketRecording.Record> records) {
+        checkBootstrapped();
+
+        Report report = new Report();
+        Int2ObjectMap<ReplayConnection> connections = new Int2ObjectOpenHashMap<>();
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long startAllocated = threadBean.getCurrentThreadAllocatedBytes();
+        long startTime = System.nanoTime();
+
+        for (PacketRecording.Record record : records) {
+            switch (record.type()) {
+                case CONNECT -> {
+                    ReplayConnection oldConnection = connections.put(record.connectionId(), new ReplayConnection(record.protocolVersion()));
+                    if (oldConnection != null) {
+                        oldConnection.close();
+                    }
+                }
+                case DISCONNECT -> {
+                    ReplayConnection connection = connections.remove(record.connectionId());
+                    if (connection != null) {
+                        connection.close();
+                    }
+                }
+                case CLIENTBOUND_UNTRANSLATED, SERVERBOUND_UNTRANSLATED -> {
+                    ReplayConnection connection = connections.get(record.connectionId());
+                    if (connection != null) {
+                        connection.translate(record, report);
+                    }
+                }
+                case CLIENTBOUND_TRANSLATED, SERVERBOUND_TRANSLATED -> {
+                    ReplayConnection connection = connections.get(record.connectionId());
+                    if (connection != null) {
+                        connection.compare(record, report);
+                    }
+                }
+            }
+        }
+        for (ReplayConnection connection : connections.values()) {
+            connection.close();
+        }
+
+        report.elapsedNanos = System.nanoTime() - startTime;
+        report.allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startAllocated;
+        return report;
+    }
+
+    private static State toViaState(int vanillaState) {
+        return switch (vanillaState) {
+            case 0 -> State.PLAY;
+            case 1 -> State.STATUS;
+            case 2 -> State.LOGIN;
+            default -> State.HANDSHAKE;
+        };
+    }
+
+    private static final class ReplayConnection {
+        private final int protocolVersion;
+        private final EmbeddedChannel channel = createChannel();
+        private final UserConnection info = ViaMulticonnectTranslator.getUserConnection(channel);
+
+        ReplayConnection(int protocolVersion) {
+            this.protocolVersion = protocolVersion;
+        }
+
+        void translate(PacketRecording.Record record, Report report) {
+            boolean clientbound = record.type() == PacketRecording.RecordType.CLIENTBOUND_UNTRANSLATED;
+            ByteBuf packet = channel.alloc().buffer(record.data().length).writeBytes(record.data());
+            int packetId = PassthroughPackets.peekVarInt(packet);
+            State state = toViaState(record.connectionState());
+            info.getProtocolInfo().setState(state);
+            if (state == State.HANDSHAKE) {
+                // the version provider picks the server version up from the api while Via handles the handshake
+                api.protocolVersion = protocolVersion;
+            }
+
+            long start = System.nanoTime();
+            try {
+                if (clientbound) {
+                    channel.writeInbound(packet);
+                } else {
+                    channel.writeOutbound(packet);
+                }
+            } catch (Exception e) {
+                report.errors++;
+                LOGGER.debug("Failed to translate {} packet {} in state {}", clientbound ? "clientbound" : "serverbound", packetId, state, e);
+            }
+            long time = System.nanoTime() - start;
+
+            report.packets++;
+            report.bytes += record.data().length;
+            // packet ids are var ints, so the whole id is kept rather than just its low byte
+            long typeKey = (clientbound ? 1L << 40 : 0) | (long) (record.connectionState() + 1 & 0xff) << 32 | (packetId & 0xffffffffL);
+            report.packetTypes.computeIfAbsent(typeKey, k -> new PacketTypeStats(clientbound, state, packetId)).add(time);
+        }
+
+        void compare(PacketRecording.Record record, Report report) {
+            Queue<Object> output = record.type() == PacketRecording.RecordType.CLIENTBOUND_TRANSLATED
+                ? channel.inboundMessages()
+                : channel.outboundMessages();
+            Object actual = output.poll();
+            try {
+                if (!(actual instanceof ByteBuf actualBuf) || !ByteBufUtil.equals(actualBuf, Unpooled.wrappedBuffer(record.data()))) {
+                    report.mismatches++;
+                }
+            } finally {
+                ReferenceCountUtil.release(actual);
+            }
+        }
+
+        void close() {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static final class PacketTypeStats {
+        private final boolean clientbound;
+        private final State state;
+        private final int packetId;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        PacketTypeStats(boolean clientbound, State state, int packetId) {
+            this.clientbound = clientbound;
+            this.state = state;
+            this.packetId = packetId;
+        }
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+
+    public static final class Report {
+        private long packets;
+        private long bytes;
+        private long errors;
+        private long mismatches;
+        private long elapsedNanos;
+        private long allocatedBytes;
+        private final Long2ObjectMap<PacketTypeStats> packetTypes = new Long2ObjectOpenHashMap<>();
+
+        private Report() {
+        }
+
+        public long packets() {
+            return packets;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public long mismatches() {
+            return mismatches;
+        }
+
+        public void log() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            LOGGER.info(String.format(
+                "Replayed %d packets (%.1f MiB) in %.1f ms: %.0f packets/s, %.1f MiB/s, %d errors, %d mismatched translations",
+                packets,
+                bytes / 1024.0 / 1024.0,
+                elapsedNanos / 1_000_000.0,
+                packets / seconds,
+                bytes / seconds / 1024 / 1024,
+                errors,
+                mismatches
+            ));
+            // pooled direct buffers don't show up here, this is heap allocation on the replay thread only
+            LOGGER.info(String.format(
+                "Allocated %.1f MiB on the heap: %.1f MiB/s, %.0f bytes/packet",
+                allocatedBytes / 1024.0 / 1024.0,
+                allocatedBytes / seconds / 1024 / 1024,
+                packets == 0 ? 0.0 : (double) allocatedBytes / packets
+            ));
+
+            List<PacketTypeStats> slowest = packetTypes.values().stream()
+                .sorted(Comparator.comparingLong((PacketTypeStats stats) -> stats.totalNanos).reversed())
+                .limit(SLOWEST_PACKET_TYPES)
+                .toList();
+            for (PacketTypeStats stats : slowest) {
+                LOGGER.info(String.format(
+                    "  %s %s 0x%02x: %d packets, %.1f us mean, %.1f us max, %.1f ms total",
+                    stats.clientbound ? "clientbound" : "serverbound",
+                    stats.state,
+                    stats.packetId,
+                    stats.count,
+                    stats.totalNanos / 1000.0 / stats.count,
+                    stats.maxNanos / 1000.0,
+                    stats.totalNanos / 1_000_000.0
+                ));
+            }
+        }
+    }
+}
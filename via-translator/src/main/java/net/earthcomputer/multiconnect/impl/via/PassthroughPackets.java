@@ -0,0 +1,107 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.AbstractProtocol;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import io.netty.buffer.ByteBuf;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks, for each connection state, which packet IDs no protocol in a connection's pipeline has registered a handler
+ * for. Via would forward those packets unchanged, so the translators can skip Via entirely for them.
+ */
+final class PassthroughPackets {
+    // IDs above this always go through Via, this also keeps Via's passthrough ID (1000) away from the fast path
+    private static final int MAX_PACKET_ID = 256;
+    private static final State[] STATES = State.values();
+    private static final Map<Key, BitSet[]> CACHE = new ConcurrentHashMap<>();
+
+    private final UserConnection info;
+    private final Direction direction;
+    private int pipelineSize = -1;
+    private BitSet[] passthroughByState;
+
+    PassthroughPackets(UserConnection info, Direction direction) {
+        this.info = info;
+        this.direction = direction;
+    }
+
+    boolean isPassthrough(ByteBuf buf) {
+        if (Via.getManager().debugHandler().enabled()) {
+            return false;
+        }
+
+        // the pipeline only grows during the handshake, so the size is enough to notice when it changes
+        List<Protocol> pipes = info.getProtocolInfo().getPipeline().pipes();
+        if (pipes.size() != pipelineSize) {
+            passthroughByState = CACHE.computeIfAbsent(new Key(List.copyOf(pipes), direction), PassthroughPackets::compute);
+            pipelineSize = pipes.size();
+        }
+
+        int packetId = peekVarInt(buf);
+        return packetId >= 0 && passthroughByState[info.getProtocolInfo().getState().ordinal()].get(packetId);
+    }
+
+    private static BitSet[] compute(Key key) {
+        BitSet[] result = new BitSet[STATES.length];
+        for (State state : STATES) {
+            BitSet passthrough = new BitSet(MAX_PACKET_ID);
+            passthrough.set(0, MAX_PACKET_ID);
+            for (Protocol protocol : key.protocols) {
+                if (overridesTransform(protocol)) {
+                    passthrough.clear();
+                    break;
+                }
+                for (int id = passthrough.nextSetBit(0); id >= 0; id = passthrough.nextSetBit(id + 1)) {
+                    boolean registered = key.direction == Direction.CLIENTBOUND
+                        ? protocol.hasRegisteredClientbound(state, id)
+                        : protocol.hasRegisteredServerbound(state, id);
+                    if (registered) {
+                        passthrough.clear(id);
+                    }
+                }
+            }
+            result[state.ordinal()] = passthrough;
+        }
+        return result;
+    }
+
+    private static boolean overridesTransform(Protocol protocol) {
+        if (!(protocol instanceof AbstractProtocol)) {
+            return true;
+        }
+        try {
+            return protocol.getClass().getMethod("transform", Direction.class, State.class, PacketWrapper.class).getDeclaringClass() != AbstractProtocol.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    static int peekVarInt(ByteBuf buf) {
+        int result = 0;
+        int index = buf.readerIndex();
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (index >= buf.writerIndex()) {
+                return -1;
+            }
+            byte b = buf.getByte(index++);
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        return -1;
+    }
+
+    // protocols are singletons, so identity equality on the list is what we want
+    private record Key(List<Protocol> protocols, Direction direction) {
+    }
+}
@@ -0,0 +1,100 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import io.netty.channel.Channel;
+import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
+import net.earthcomputer.multiconnect.api.ScheduledTask;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/**
+ * The translator API used when replaying packet recordings outside of the game
+ */
+final class ReplayTranslatorApi implements IMulticonnectTranslatorApi {
+    private final Path configDir;
+    // the version of the connection whose handshake is currently being replayed
+    int protocolVersion;
+    @Nullable
+    Channel currentChannel;
+
+    ReplayTranslatorApi(Path configDir) {
+        this.configDir = configDir;
+    }
+
+    @Override
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    @Override
+    public String getVersion() {
+        return "replay";
+    }
+
+    @Override
+    public boolean isModLoaded(String modid) {
+        return false;
+    }
+
+    @Override
+    public Path getConfigDir() {
+        return configDir;
+    }
+
+    @Override
+    public long getTranslatedChunkCacheSize() {
+        // a replay should measure translation, not cache hits
+        return 0;
+    }
+
+    @Override
+    @Nullable
+    public Channel getCurrentChannel() {
+        return currentChannel;
+    }
+
+    @Override
+    public BitSet getAllKnownEntries(String registry) {
+        // only asked for between connections, which a replay doesn't have, so there's no need to cache it
+        Registry<?> reg = BuiltInRegistries.REGISTRY.get(new ResourceLocation(registry));
+        if (reg == null) {
+            throw new IllegalArgumentException("Unknown registry: " + registry);
+        }
+        BitSet result = new BitSet(reg.size());
+        result.set(0, reg.size());
+        return result;
+    }
+
+    @Override
+    public ScheduledTask scheduleDelayed(int delay, Runnable task) {
+        // there are no ticks in a replay, run it straight away
+        task.run();
+        return NO_TASK;
+    }
+
+    @Override
+    public ScheduledTask scheduleRepeating(int period, Runnable task) {
+        return NO_TASK;
+    }
+
+    @Override
+    public <T> ScheduledTask scheduleRepeatingWeak(int period, T owner, Consumer<T> task) {
+        return NO_TASK;
+    }
+
+    private static final ScheduledTask NO_TASK = new ScheduledTask() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return true;
+        }
+    };
+}
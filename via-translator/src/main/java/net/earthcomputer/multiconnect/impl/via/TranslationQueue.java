@@ -0,0 +1,67 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import io.netty.channel.Channel;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serial queue for the translation work of one connection, shared by its clientbound and serverbound translators.
+ * Via's per-connection storages (entity trackers, chunk and light storages, the protocol state) aren't thread safe, so
+ * once a packet in either direction has gone to the {@link TranslationWorkers}, every later packet of the connection
+ * in either direction queues up behind it on the same chain. Translation of a connection therefore never runs on the
+ * event loop and on a worker at the same time.
+ */
+final class TranslationQueue {
+    // only accessed on the event loop
+    private int pendingPackets;
+    private boolean throttled;
+    // chained so that packets are translated one at a time and in order, only appended to on the event loop
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    /**
+     * Whether there are packets queued or in flight, in which case any packet translated now has to be queued too.
+     * Must be called on the event loop.
+     */
+    boolean isBusy() {
+        return pendingPackets > 0;
+    }
+
+    /**
+     * Runs the work on the workers after all previously queued work, and passes the result back on the event loop. Must
+     * be called on the event loop.
+     */
+    <T> void submit(Channel channel, Callable<T> work, Callback<T> callback) {
+        TranslationStats.onOffloaded();
+        if (++pendingPackets >= TranslationWorkers.HIGH_WATER_MARK && !throttled) {
+            throttled = true;
+            channel.config().setAutoRead(false);
+        }
+
+        tail = tail.thenRunAsync(() -> {
+            T result = null;
+            Throwable error = null;
+            try {
+                result = work.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+
+            T finalResult = result;
+            Throwable finalError = error;
+            channel.eventLoop().execute(() -> {
+                if (--pendingPackets <= TranslationWorkers.LOW_WATER_MARK && throttled) {
+                    throttled = false;
+                    channel.config().setAutoRead(true);
+                }
+                callback.onDone(finalResult, finalError);
+            });
+        }, TranslationWorkers.EXECUTOR);
+    }
+
+    @FunctionalInterface
+    interface Callback<T> {
+        void onDone(@Nullable T result, @Nullable Throwable error);
+    }
+}
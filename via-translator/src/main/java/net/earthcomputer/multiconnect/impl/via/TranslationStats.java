@@ -0,0 +1,135 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.mojang.logging.LogUtils;
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the translator handlers. Enable with {@code -Dmulticonnect.translationStats=true}, the rates are then
+ * logged every few seconds. Run once with {@code -Dmulticonnect.inPlaceTranslation=false} to compare against the
+ * copying path.
+ */
+public final class TranslationStats {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    public static final boolean ENABLED = Boolean.getBoolean("multiconnect.translationStats");
+    public static final boolean IN_PLACE_TRANSLATION = !"false".equals(System.getProperty("multiconnect.inPlaceTranslation"));
+    public static final int LOG_INTERVAL_TICKS = 100;
+
+    private static final LongAdder copiedPackets = new LongAdder();
+    private static final LongAdder copiedBytes = new LongAdder();
+    private static final LongAdder inPlacePackets = new LongAdder();
+    private static final LongAdder inPlaceBytes = new LongAdder();
+    private static final LongAdder passthroughPackets = new LongAdder();
+    private static final LongAdder offloadedPackets = new LongAdder();
+    private static final LongAdder chunkCacheHits = new LongAdder();
+    private static final LongAdder chunkCacheMisses = new LongAdder();
+    private static final LongAdder chunkCacheEvictions = new LongAdder();
+
+    private static long lastLogTime = System.nanoTime();
+
+    private TranslationStats() {
+    }
+
+    /**
+     * Whether Via may rewrite the given buffer directly. Via clears the buffer and writes the translated packet back
+     * into it, so we need to be the only owner and the buffer needs to be able to grow. Buffers wrapping an array, such
+     * as the ones the vanilla decompressor produces, have a max capacity of their length and can't grow.
+     */
+    static boolean canTransformInPlace(ByteBuf buf) {
+        return IN_PLACE_TRANSLATION
+            && buf.refCnt() == 1
+            && buf.unwrap() == null
+            && !buf.isReadOnly()
+            && buf.maxCapacity() == Integer.MAX_VALUE;
+    }
+
+    static void onCopied(int bytes) {
+        if (ENABLED) {
+            copiedPackets.increment();
+            copiedBytes.add(bytes);
+        }
+    }
+
+    static void onInPlace(int bytes) {
+        if (ENABLED) {
+            inPlacePackets.increment();
+            inPlaceBytes.add(bytes);
+        }
+    }
+
+    static void onPassthrough() {
+        if (ENABLED) {
+            passthroughPackets.increment();
+        }
+    }
+
+    static void onOffloaded() {
+        if (ENABLED) {
+            offloadedPackets.increment();
+        }
+    }
+
+    static void onChunkCacheHit() {
+        if (ENABLED) {
+            chunkCacheHits.increment();
+        }
+    }
+
+    static void onChunkCacheMiss() {
+        if (ENABLED) {
+            chunkCacheMisses.increment();
+        }
+    }
+
+    static void onChunkCacheEviction() {
+        if (ENABLED) {
+            chunkCacheEvictions.increment();
+        }
+    }
+
+    static void log() {
+        long now = System.nanoTime();
+        double seconds = (now - lastLogTime) / 1_000_000_000.0;
+        lastLogTime = now;
+        if (seconds <= 0) {
+            return;
+        }
+
+        long copiedPackets = TranslationStats.copiedPackets.sumThenReset();
+        long copiedBytes = TranslationStats.copiedBytes.sumThenReset();
+        long inPlacePackets = TranslationStats.inPlacePackets.sumThenReset();
+        long inPlaceBytes = TranslationStats.inPlaceBytes.sumThenReset();
+        long passthroughPackets = TranslationStats.passthroughPackets.sumThenReset();
+        long offloadedPackets = TranslationStats.offloadedPackets.sumThenReset();
+        if (copiedPackets == 0 && inPlacePackets == 0 && passthroughPackets == 0 && offloadedPackets == 0) {
+            return;
+        }
+
+        LOGGER.info(String.format(
+            "Translation: copied %.0f packets/s (%.1f KiB/s), in place %.0f packets/s (%.1f KiB/s), skipped Via for %.0f packets/s, offloaded %.0f packets/s",
+            copiedPackets / seconds,
+            copiedBytes / seconds / 1024,
+            inPlacePackets / seconds,
+            inPlaceBytes / seconds / 1024,
+            passthroughPackets / seconds,
+            offloadedPackets / seconds
+        ));
+
+        long chunkCacheHits = TranslationStats.chunkCacheHits.sumThenReset();
+        long chunkCacheMisses = TranslationStats.chunkCacheMisses.sumThenReset();
+        long chunkCacheEvictions = TranslationStats.chunkCacheEvictions.sumThenReset();
+        if (chunkCacheHits != 0 || chunkCacheMisses != 0) {
+            LOGGER.info(String.format(
+                "Chunk cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %.1f MiB used",
+                chunkCacheHits,
+                chunkCacheMisses,
+                100.0 * chunkCacheHits / (chunkCacheHits + chunkCacheMisses),
+                chunkCacheEvictions,
+                ChunkPacketCache.getSize() / 1024.0 / 1024.0
+            ));
+        }
+    }
+}
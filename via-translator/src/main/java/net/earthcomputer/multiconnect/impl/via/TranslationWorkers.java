@@ -0,0 +1,31 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in worker pool for translating large clientbound packets off the event loop. Enable with
+ * {@code -Dmulticonnect.asyncTranslation=true}.
+ */
+final class TranslationWorkers {
+    static final boolean ENABLED = Boolean.getBoolean("multiconnect.asyncTranslation");
+    static final int SIZE_THRESHOLD = Integer.getInteger("multiconnect.asyncTranslationThreshold", 8192);
+    // once this many packets are queued on a connection we stop reading from the socket until the workers catch up
+    static final int HIGH_WATER_MARK = Integer.getInteger("multiconnect.asyncTranslationMaxPending", 256);
+    static final int LOW_WATER_MARK = HIGH_WATER_MARK / 4;
+
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+        Integer.getInteger("multiconnect.asyncTranslationThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multiconnect translation worker #%d").build()
+    );
+
+    private TranslationWorkers() {
+    }
+
+    static boolean shouldOffload(ByteBuf buf) {
+        return ENABLED && buf.readableBytes() >= SIZE_THRESHOLD;
+    }
+}
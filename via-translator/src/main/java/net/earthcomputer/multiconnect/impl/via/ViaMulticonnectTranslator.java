@@ -4,12 +4,14 @@ import com.mojang.logging.LogUtils;
 import com.viaversion.viaversion.ViaManagerImpl;
 import com.viaversion.viaversion.api.Via;
 import com.viaversion.viaversion.api.connection.UserConnection;
-import com.viaversion.viaversion.api.data.FullMappings;
 import com.viaversion.viaversion.api.data.MappingData;
-import com.viaversion.viaversion.api.data.Mappings;
 import com.viaversion.viaversion.api.minecraft.item.DataItem;
 import com.viaversion.viaversion.api.minecraft.item.Item;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import com.viaversion.viaversion.api.protocol.ProtocolPathEntry;
+import com.viaversion.viaversion.api.protocol.ProtocolPipeline;
 import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
+import com.viaversion.viaversion.api.protocol.packet.State;
 import com.viaversion.viaversion.api.type.Type;
 import com.viaversion.viaversion.connection.UserConnectionImpl;
 import com.viaversion.viaversion.protocol.ProtocolPipelineImpl;
@@ -19,22 +21,47 @@ import com.viaversion.viaversion.protocols.protocol1_13to1_12_2.Protocol1_13To1_
 import com.viaversion.viaversion.protocols.protocol1_9_3to1_9_1_2.ServerboundPackets1_9_3;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.AttributeKey;
-import it.unimi.dsi.fastutil.ints.Int2IntMap;
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslator;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
+import net.minecraft.SharedConstants;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.Registry;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.network.protocol.game.ServerboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ServerboundMovePlayerPacket;
+import net.minecraft.network.protocol.game.ServerboundSetCarriedItemPacket;
+import net.minecraft.network.protocol.game.ServerboundSwingPacket;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.InteractionHand;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class ViaMulticonnectTranslator implements IMulticonnectTranslator {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final AttributeKey<UserConnection> VIA_USER_CONNECTION_KEY = AttributeKey.valueOf("multiconnect.via_user_connection");
+    private static final AttributeKey<Map<String, BitSet>> KNOWN_ENTRIES_KEY = AttributeKey.valueOf("multiconnect.known_entries");
+    private static final int PREWARM_ITERATIONS = Integer.getInteger("multiconnect.prewarmIterations", 200);
+    private static final List<Packet<?>> PREWARM_PACKETS = List.of(
+        new ServerboundMovePlayerPacket.PosRot(0, 64, 0, 0, 0, true),
+        new ServerboundMovePlayerPacket.Pos(0, 64, 0, true),
+        new ServerboundMovePlayerPacket.StatusOnly(true),
+        new ServerboundKeepAlivePacket(0),
+        new ServerboundSwingPacket(InteractionHand.MAIN_HAND),
+        new ServerboundSetCarriedItemPacket(0)
+    );
 
     protected IMulticonnectTranslatorApi api;
 
@@ -46,6 +73,10 @@ public class ViaMulticonnectTranslator implements IMulticonnectTranslator {
         return channel.attr(VIA_USER_CONNECTION_KEY).get();
     }
 
+    static void setUserConnection(Channel channel, UserConnection info) {
+        channel.attr(VIA_USER_CONNECTION_KEY).set(info);
+    }
+
     @Override
     public boolean isApplicableInEnvironment(IMulticonnectTranslatorApi api) {
         return !api.isModLoaded("viafabric");
@@ -64,6 +95,12 @@ public class ViaMulticonnectTranslator implements IMulticonnectTranslator {
         manager.init();
 
         LOGGER.info("ViaVersion version: {}", Via.getAPI().getVersion());
+
+        ChunkPacketCache.setMaxSize(api.getTranslatedChunkCacheSize());
+
+        if (TranslationStats.ENABLED) {
+            api.scheduleRepeating(TranslationStats.LOG_INTERVAL_TICKS, TranslationStats::log);
+        }
     }
 
     @Override
@@ -75,10 +112,11 @@ public class ViaMulticonnectTranslator implements IMulticonnectTranslator {
 
         UserConnection info = new UserConnectionImpl(channel, true);
         new ProtocolPipelineImpl(info);
-        channel.attr(VIA_USER_CONNECTION_KEY).set(info);
+        TranslationQueue queue = new TranslationQueue();
+        setUserConnection(channel, info);
         channel.pipeline()
-            .addBefore("encoder", "multiconnect_serverbound_translator", new MulticonnectServerboundTranslator(info))
-            .addBefore("decoder", "multiconnect_clientbound_translator", new MulticonnectClientboundTranslator(info));
+            .addBefore("encoder", "multiconnect_serverbound_translator", new MulticonnectServerboundTranslator(info, queue))
+            .addBefore("decoder", "multiconnect_clientbound_translator", new MulticonnectClientboundTranslator(info, queue));
     }
 
     @Override
@@ -94,53 +132,109 @@ public class ViaMulticonnectTranslator implements IMulticonnectTranslator {
         }
     }
 
-    private static Int2IntMap invertMappings(Mappings mappings) {
-        Int2IntMap result = new Int2IntOpenHashMap(mappings.mappedSize());
-        for (int oldId = 0; oldId < mappings.size(); oldId++) {
-            int newId = mappings.getNewId(oldId);
-            if (newId != -1) {
-                result.put(newId, oldId);
+    @Override
+    public void prewarm(int protocolVersion) {
+        int currentVersion = SharedConstants.getCurrentVersion().getProtocolVersion();
+        var protocolManager = Via.getManager().getProtocolManager();
+        var path = protocolManager.getProtocolPath(currentVersion, protocolVersion);
+        if (path == null) {
+            return;
+        }
+        List<Protocol> protocols = new ArrayList<>(path.size());
+        for (ProtocolPathEntry entry : path) {
+            Protocol<?, ?, ?, ?> protocol = entry.protocol();
+            // waits for Via to load the mapping data, which it does on its own threads from startup
+            InverseMappings inverseMappings = InverseMappings.get(protocol);
+            if (inverseMappings != null) {
+                inverseMappings.join();
             }
+            protocols.add(protocol);
         }
-        return result;
+
+        prewarmPipeline(currentVersion, protocolVersion, protocols);
     }
 
-    private static Int2IntMap getInverseMappings(Channel channel, AttributeKey<Int2IntMap> key, Mappings mappings) {
-        if (mappings == null) {
-            return null;
+    /**
+     * Sends the packets a client sends every tick through a throwaway pipeline to the given version a few times, so
+     * that the rewriters on the way have been run, and compiled by the JIT, before the first real connection
+     */
+    private static void prewarmPipeline(int currentVersion, int protocolVersion, List<Protocol> protocols) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UserConnection info = new UserConnectionImpl(channel, true);
+        ProtocolPipeline pipeline = new ProtocolPipelineImpl(info);
+        // set up the way Via does it when it handles the handshake
+        info.getProtocolInfo().setProtocolVersion(currentVersion);
+        info.getProtocolInfo().setServerProtocolVersion(protocolVersion);
+        for (Protocol<?, ?, ?, ?> protocol : protocols) {
+            pipeline.add(protocol);
         }
+        pipeline.add(Via.getManager().getProtocolManager().getBaseProtocol(protocolVersion));
+        info.getProtocolInfo().setState(State.PLAY);
+        channel.pipeline().addLast("multiconnect_serverbound_translator", new MulticonnectServerboundTranslator(info, new TranslationQueue()));
 
-        Int2IntMap result = channel.attr(key).get();
-        if (result == null) {
-            channel.attr(key).set(result = invertMappings(mappings));
+        try {
+            for (int i = 0; i < PREWARM_ITERATIONS; i++) {
+                for (Packet<?> packet : PREWARM_PACKETS) {
+                    FriendlyByteBuf buf = new FriendlyByteBuf(channel.alloc().buffer());
+                    buf.writeVarInt(ConnectionProtocol.PLAY.getPacketId(PacketFlow.SERVERBOUND, packet));
+                    packet.write(buf);
+                    try {
+                        channel.writeOutbound(buf);
+                    } catch (Exception e) {
+                        LOGGER.debug("Failed to prewarm {} for protocol {}", packet.getClass().getSimpleName(), protocolVersion, e);
+                        return;
+                    }
+                    channel.releaseOutbound();
+                }
+            }
+        } finally {
+            channel.finishAndReleaseAll();
         }
-        return result;
     }
 
-    private static final AttributeKey<Int2IntMap> INV_BLOCK_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invBlockMappings");
-    private static final AttributeKey<Int2IntMap> INV_ENTITY_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invEntityMappings");
-    private static final AttributeKey<Int2IntMap> INV_ENCHANTMENT_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invEnchantmentMappings");
-    private static final AttributeKey<Int2IntMap> INV_ARGUMENT_TYPE_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invArgumentTypeMappings");
-    private static final AttributeKey<Int2IntMap> INV_BLOCK_ENTITY_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invBlockEntityMappings");
-    private static final AttributeKey<Int2IntMap> INV_PAINTING_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invPaintingMappings");
-    private static final AttributeKey<Int2IntMap> INV_PARTICLE_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invParticleMappings");
-    private static final AttributeKey<Int2IntMap> INV_SOUND_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invSoundMappings");
-    private static final AttributeKey<Int2IntMap> INV_STATISTICS_MAPPINGS_KEY = AttributeKey.valueOf("multiconnect.invStatisticsMappings");
-
     @Override
     public boolean doesServerKnow(String registry, String entry) {
-        int id = getRegistryId(registry, entry);
-        if (registry.equals("minecraft:item") && id == 1) return true; // Stone *always* exists
+        return doesServerKnowAll(registry).get(getRegistryId(registry, entry));
+    }
 
+    @Override
+    public BitSet doesServerKnowAll(String registry) {
         Channel channel = api.getCurrentChannel();
-        if (channel == null) {
-            return true;
-        }
-        UserConnection connection = getUserConnection(channel);
+        UserConnection connection = channel == null ? null : getUserConnection(channel);
         if (connection == null) {
-            return true;
+            return api.getAllKnownEntries(registry);
+        }
+
+        // stored on the channel, so it goes away with the connection
+        Map<String, BitSet> knownEntries = channel.attr(KNOWN_ENTRIES_KEY).get();
+        if (knownEntries == null) {
+            knownEntries = new ConcurrentHashMap<>();
+            Map<String, BitSet> existing = channel.attr(KNOWN_ENTRIES_KEY).setIfAbsent(knownEntries);
+            if (existing != null) {
+                knownEntries = existing;
+            }
+        }
+        return knownEntries.computeIfAbsent(registry, k -> computeKnownEntries(connection, registry));
+    }
+
+    private static BitSet computeKnownEntries(UserConnection connection, String registry) {
+        var pipes = connection.getProtocolInfo().getPipeline().pipes();
+        InverseMappings.prepare(pipes);
+        InverseMappings.MappingType mappingType = InverseMappings.MappingType.byRegistry(registry);
+        int size = getRegistry(registry).size();
+        BitSet result = new BitSet(size);
+        for (int id = 0; id < size; id++) {
+            if (isKnown(pipes, registry, mappingType, id)) {
+                result.set(id);
+            }
         }
-        for (final var protocol : connection.getProtocolInfo().getPipeline().pipes()) {
+        return result;
+    }
+
+    private static boolean isKnown(List<Protocol> pipes, String registry, @Nullable InverseMappings.MappingType mappingType, int id) {
+        if (registry.equals("minecraft:item") && id == 1) return true; // Stone *always* exists
+
+        for (final Protocol<?, ?, ?, ?> protocol : pipes) {
             if (registry.equals("minecraft:item")) {
                 final var itemRewriter = protocol.getItemRewriter();
                 if (itemRewriter != null) {
@@ -156,44 +250,30 @@ public class ViaMulticonnectTranslator implements IMulticonnectTranslator {
             MappingData mappingData = protocol.getMappingData();
             if (mappingData == null) continue;
 
-            id = switch (registry) {
-                case "minecraft:block" -> getOldId(channel, INV_BLOCK_MAPPINGS_KEY, mappingData.getBlockMappings(), id);
-                case "minecraft:item" -> mappingData.getOldItemId(id);
-                case "minecraft:entity_type" -> getOldId(channel, INV_ENTITY_MAPPINGS_KEY, mappingData.getEntityMappings(), id);
-                case "minecraft:enchantment" -> getOldId(channel, INV_ENCHANTMENT_MAPPINGS_KEY, mappingData.getEnchantmentMappings(), id);
-                case "minecraft:command_argument_type" -> getOldId(channel, INV_ARGUMENT_TYPE_MAPPINGS_KEY, mappingData.getArgumentTypeMappings(), id);
-                case "minecraft:block_entity_type" -> getOldId(channel, INV_BLOCK_ENTITY_MAPPINGS_KEY, mappingData.getBlockEntityMappings(), id);
-                case "minecraft:painting_variant" -> getOldId(channel, INV_PAINTING_MAPPINGS_KEY, mappingData.getPaintingMappings(), id);
-                case "minecraft:particle_type" -> getOldId(channel, INV_PARTICLE_MAPPINGS_KEY, mappingData.getParticleMappings(), id);
-                case "minecraft:sound_event" -> getOldId(channel, INV_SOUND_MAPPINGS_KEY, mappingData.getSoundMappings(), id);
-                case "minecraft:custom_stat" -> getOldId(channel, INV_STATISTICS_MAPPINGS_KEY, mappingData.getStatisticsMappings(), id);
-                default -> id;
-            };
+            if (registry.equals("minecraft:item")) {
+                id = mappingData.getOldItemId(id);
+            } else if (mappingType != null) {
+                InverseMappings inverseMappings = InverseMappings.get(protocol);
+                if (inverseMappings != null) {
+                    id = inverseMappings.getOldId(mappingType, id);
+                }
+            }
             if (id == -1 || (registry.equals("minecraft:item") && id == 1)) return false;
         }
         return true;
     }
 
-    private static int getOldId(Channel channel, AttributeKey<Int2IntMap> key, @Nullable FullMappings mappings, int id) {
-        if (mappings == null) {
-            return id;
-        }
-        return getOldId(channel, key, mappings.mappings(), id);
-    }
-
-    private static int getOldId(Channel channel, AttributeKey<Int2IntMap> key, @Nullable Mappings mappings, int id) {
-        if (mappings == null) {
-            return id;
+    private static Registry<?> getRegistry(String registry) {
+        Registry<?> reg = BuiltInRegistries.REGISTRY.get(new ResourceLocation(registry));
+        if (reg == null) {
+            throw new RuntimeException("Unknown registry: " + registry);
         }
-        return getInverseMappings(channel, key, mappings).get(id);
+        return reg;
     }
 
     @SuppressWarnings("unchecked")
     private static <T> int getRegistryId(String registry, String entry) {
-        Registry<T> reg = (Registry<T>) BuiltInRegistries.REGISTRY.get(new ResourceLocation(registry));
-        if (reg == null) {
-            throw new RuntimeException("Unknown registry: " + registry);
-        }
+        Registry<T> reg = (Registry<T>) getRegistry(registry);
         T value = reg.getOrThrow(ResourceKey.create(reg.key(), new ResourceLocation(entry)));
         return reg.getId(value);
     }
@@ -3,24 +3,44 @@ package net.earthcomputer.multiconnect.impl.via.provider;
 import com.viaversion.viaversion.api.connection.UserConnection;
 import com.viaversion.viaversion.api.minecraft.item.DataItem;
 import com.viaversion.viaversion.api.minecraft.item.Item;
+import com.viaversion.viaversion.api.protocol.Protocol;
 import com.viaversion.viaversion.protocols.protocol1_9to1_8.providers.HandItemProvider;
 import net.earthcomputer.multiconnect.api.IMulticonnectTranslatorApi;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.player.LocalPlayer;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 public class MulticonnectHandItemProvider extends HandItemProvider {
-    private Item handItem = new DataItem(0, (byte) 0, (short) 0, null);
+    // item id in the high bits, count in the low bits, written on the client thread and read on the netty thread
+    private volatile long handItem = 0;
+    @Nullable
+    private volatile RewrittenItem rewrittenItem;
 
     public MulticonnectHandItemProvider(IMulticonnectTranslatorApi api) {
         api.scheduleRepeatingWeak(this, MulticonnectHandItemProvider::tick);
     }
 
     @Override
+    @Nullable
     public Item getHandItem(UserConnection info) {
-        Item item = new DataItem(handItem);
-        for (var protocol : info.getProtocolInfo().getPipeline().pipes()) {
+        long handItem = this.handItem;
+        List<Protocol> pipes = info.getProtocolInfo().getPipeline().pipes();
+        RewrittenItem rewrittenItem = this.rewrittenItem;
+        if (rewrittenItem == null || rewrittenItem.handItem != handItem || !rewrittenItem.pipes.equals(pipes)) {
+            this.rewrittenItem = rewrittenItem = new RewrittenItem(handItem, List.copyOf(pipes), rewrite(handItem, pipes));
+        }
+        // Via's items are mutable, don't let it modify the cached one
+        return rewrittenItem.item == null ? null : new DataItem(rewrittenItem.item);
+    }
+
+    @Nullable
+    private static Item rewrite(long handItem, List<Protocol> pipes) {
+        Item item = new DataItem((int) (handItem >>> 32), (byte) handItem, (short) 0, null);
+        for (var protocol : pipes) {
             var itemRewriter = protocol.getItemRewriter();
             if (itemRewriter != null) {
                 item = itemRewriter.handleItemToServer(item);
@@ -34,7 +54,10 @@ public class MulticonnectHandItemProvider extends HandItemProvider {
         if (player != null) {
             ItemStack stack = player.getMainHandItem();
             int id = BuiltInRegistries.ITEM.getId(stack.getItem());
-            handItem = new DataItem(id, (byte) stack.getCount(), (short) 0, null);
+            handItem = (long) id << 32 | (stack.getCount() & 0xffL);
         }
     }
+
+    private record RewrittenItem(long handItem, List<Protocol> pipes, @Nullable Item item) {
+    }
 }
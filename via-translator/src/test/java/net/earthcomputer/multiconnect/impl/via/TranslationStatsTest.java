@@ -0,0 +1,96 @@
+package net.earthcomputer.multiconnect.impl.via;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranslationStatsTest {
+    private static final byte[] PACKET = {0x20, 1, 2, 3, 4, 5, 6, 7};
+    private static final byte[] GROWN_PACKET = {0x22, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15};
+
+    @Test
+    public void testWrappedArrayIsNotInPlace() {
+        // what the vanilla decompressor passes on
+        ByteBuf buf = Unpooled.wrappedBuffer(PACKET.clone());
+        try {
+            assertFalse(TranslationStats.canTransformInPlace(buf));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testGrowingWrappedArrayIsTranslatedInACopy() {
+        ByteBuf buf = Unpooled.wrappedBuffer(PACKET.clone());
+        try {
+            ByteBuf translated = transform(buf);
+            try {
+                assertEquals(Unpooled.wrappedBuffer(GROWN_PACKET), translated);
+            } finally {
+                translated.release();
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testGrowableBufferIsInPlace() {
+        ByteBuf buf = Unpooled.buffer(PACKET.length).writeBytes(PACKET);
+        try {
+            assertTrue(TranslationStats.canTransformInPlace(buf));
+            ByteBuf translated = transform(buf);
+            try {
+                assertSame(buf, translated);
+                assertEquals(Unpooled.wrappedBuffer(GROWN_PACKET), translated);
+            } finally {
+                translated.release();
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testSharedBufferIsNotInPlace() {
+        ByteBuf buf = Unpooled.buffer().writeBytes(PACKET);
+        buf.retain();
+        try {
+            assertFalse(TranslationStats.canTransformInPlace(buf));
+        } finally {
+            buf.release(2);
+        }
+    }
+
+    @Test
+    public void testSliceIsNotInPlace() {
+        ByteBuf buf = Unpooled.buffer().writeBytes(PACKET);
+        try {
+            assertFalse(TranslationStats.canTransformInPlace(buf.slice()));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testReadOnlyIsNotInPlace() {
+        ByteBuf buf = Unpooled.buffer().writeBytes(PACKET);
+        try {
+            assertFalse(TranslationStats.canTransformInPlace(buf.asReadOnly()));
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Does what the translators do around Via, with a rewrite that makes the packet bigger the way Via's transform
+     * writes it back: clearing the buffer and writing the translated packet into it
+     */
+    private static ByteBuf transform(ByteBuf in) {
+        ByteBuf target = TranslationStats.canTransformInPlace(in) ? in.retain() : Unpooled.buffer(in.readableBytes()).writeBytes(in);
+        target.clear().writeBytes(GROWN_PACKET);
+        return target;
+    }
+}